@@ -0,0 +1,72 @@
+package interpreter.bench;
+
+import interpreter.IntermediateCodeGenerator;
+import interpreter.SemanticAnalyzer;
+import interpreter.ast.Program;
+import interpreter.ast.SyntaxNode;
+import interpreter.ir.Statement;
+import interpreter.lexer.Yylex;
+import interpreter.optimizer.Optimizer;
+import interpreter.parser.Parser;
+import interpreter.symbols.SymbolTable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MicroJava programs benchmarks are run on, compiled
+ * the same way Main compiles them before interpretation
+ */
+public final class Corpus
+{
+	private Corpus()
+	{
+	}
+
+	/**
+	 * Source of a program from the corpus directory, line endings
+	 * are converted to the CR LF pairs the lexer expects
+	 */
+	public static String load(String name) throws IOException
+	{
+		try (InputStream stream = Corpus.class.getResourceAsStream("/corpus/" + name + ".mj"))
+		{
+			if (stream == null) throw new IOException("Program '" + name + "' is not a part of the corpus.");
+
+			String source = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+
+			return source.replace("\r\n", "\n").replace("\n", "\r\n");
+		}
+	}
+
+	public static Statement.Program compile(String source, boolean optimize) throws Exception
+	{
+		SymbolTable symbolTable = new SymbolTable();
+
+		Parser parser = new Parser(new Yylex(new StringReader(source), symbolTable.getNames()));
+		SyntaxNode root = (SyntaxNode) parser.parse().value;
+
+		if (!(root instanceof Program) || !parser.isSyntacticallyCorrect())
+		{
+			throw new IllegalStateException("Syntax error in benchmark program!");
+		}
+
+		SemanticAnalyzer analyzer = new SemanticAnalyzer(symbolTable);
+
+		analyzer.analyze((Program) root);
+
+		if (!analyzer.isSemanticallyCorrect())
+		{
+			throw new IllegalStateException("Semantic error in benchmark program!");
+		}
+
+		IntermediateCodeGenerator generator = new IntermediateCodeGenerator(symbolTable);
+
+		generator.generate((Program) root);
+		generator.optimize(Optimizer.of(optimize, false));
+
+		return generator.getIntermediateCode();
+	}
+}
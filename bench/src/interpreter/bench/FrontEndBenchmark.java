@@ -0,0 +1,166 @@
+package interpreter.bench;
+
+import interpreter.IntermediateCodeGenerator;
+import interpreter.SemanticAnalyzer;
+import interpreter.ast.Program;
+import interpreter.ir.Statement;
+import interpreter.lexer.Yylex;
+import interpreter.parser.Parser;
+import interpreter.parser.sym;
+import interpreter.symbols.SymbolTable;
+import java_cup.runtime.Scanner;
+import java_cup.runtime.Symbol;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of every compile phase Main runs before interpretation, each
+ * phase is fed with the output of the previous one prepared during
+ * setup so it is measured on its own
+ *
+ * Sizes span from a few lines to tens of megabytes, dividing the
+ * score by the size shows which phase scales worse than linearly
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-Xss256m"})
+public class FrontEndBenchmark
+{
+	@Param({"1K", "64K", "1M", "10M", "50M"})
+	public String size;
+
+	@Param({"2"})
+	public int classes;
+
+	@Param({"4"})
+	public int methods;
+
+	@Param({"3"})
+	public int depth;
+
+	private String source;
+	private List<Symbol> tokens;
+
+	private Program program;
+	private SymbolTable symbolTable;
+
+	private PrintStream console;
+
+	/**
+	 * Replays tokens of the lexing phase to the parser, copies
+	 * are handed out since the parser keeps state in symbols
+	 */
+	private static final class TokenScanner implements Scanner
+	{
+		private final List<Symbol> tokens;
+		private int position;
+
+		public TokenScanner(List<Symbol> tokens)
+		{
+			this.tokens = tokens;
+		}
+
+		@Override
+		public Symbol next_token()
+		{
+			// parser may ask for more after the end of file
+			Symbol token = tokens.get(Math.min(position++, tokens.size() - 1));
+			return new Symbol(token.sym, token.left, token.right, token.value);
+		}
+	}
+
+	private static long parseSize(String size)
+	{
+		char unit = size.charAt(size.length() - 1);
+		long multiplier = unit == 'K' ? 1 << 10 : unit == 'M' ? 1 << 20 : 1;
+
+		return Long.parseLong(multiplier == 1 ? size : size.substring(0, size.length() - 1)) * multiplier;
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception
+	{
+		// parser and analyzer report to standard output, only
+		// the cost of producing their messages is measured
+		console = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+		source = new SourceGenerator(classes, methods, depth, 0).generate(parseSize(size));
+		tokens = lex();
+		program = parse();
+		symbolTable = analyze();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		System.setOut(console);
+	}
+
+	@Benchmark
+	public List<Symbol> lex() throws Exception
+	{
+		Yylex lexer = new Yylex(new StringReader(source));
+		List<Symbol> tokens = new ArrayList<>();
+
+		Symbol token;
+
+		do
+		{
+			token = lexer.next_token();
+			tokens.add(token);
+		}
+		while (token.sym != sym.EOF);
+
+		return tokens;
+	}
+
+	@Benchmark
+	public Program parse() throws Exception
+	{
+		Parser parser = new Parser(new TokenScanner(tokens));
+		Object root = parser.parse().value;
+
+		if (!(root instanceof Program) || !parser.isSyntacticallyCorrect())
+		{
+			throw new IllegalStateException("Syntax error in generated program!");
+		}
+
+		return (Program) root;
+	}
+
+	@Benchmark
+	public SymbolTable analyze()
+	{
+		SymbolTable symbolTable = new SymbolTable();
+		SemanticAnalyzer analyzer = new SemanticAnalyzer(symbolTable);
+
+		analyzer.analyze(program);
+
+		if (!analyzer.isSemanticallyCorrect())
+		{
+			throw new IllegalStateException("Semantic error in generated program!");
+		}
+
+		return symbolTable;
+	}
+
+	@Benchmark
+	public Statement.Program generate()
+	{
+		IntermediateCodeGenerator generator = new IntermediateCodeGenerator(symbolTable);
+
+		generator.generate(program);
+
+		return generator.getIntermediateCode();
+	}
+}
@@ -0,0 +1,68 @@
+package interpreter.bench;
+
+import interpreter.Interpreter;
+import interpreter.ir.Statement;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of interpreting whole corpus programs, intermediate
+ * code is generated once per trial so only execution is measured
+ *
+ * Engines are the configurations Main can run a program in:
+ * plain interpretation, optimized intermediate code and
+ * interpretation with memoization of pure methods
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class InterpreterBenchmark
+{
+	@Param({"fibonacci", "memo", "shapes", "allocation", "print"})
+	public String program;
+
+	@Param({"interpreter", "optimized", "memoized"})
+	public String engine;
+
+	private Statement.Program intermediateCode;
+
+	private PrintStream console;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception
+	{
+		// programs print their results, output is discarded so
+		// the terminal does not take part in the measurement
+		console = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+		intermediateCode = Corpus.compile(Corpus.load(program), engine.equals("optimized"));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		System.setOut(console);
+	}
+
+	@Benchmark
+	public Interpreter interpret()
+	{
+		Interpreter interpreter = new Interpreter();
+
+		if (engine.equals("memoized"))
+		{
+			interpreter.setMemoizationLimit(Interpreter.DEFAULT_MEMOIZATION_LIMIT);
+		}
+
+		interpreter.interpret(intermediateCode);
+
+		return interpreter;
+	}
+}
@@ -0,0 +1,173 @@
+package interpreter.bench;
+
+import interpreter.Options;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Generates semantically correct MicroJava programs of a requested
+ * size, made of repeated units each holding a number of classes and
+ * global methods, expression depth controls how much of every method
+ * body consists of arithmetic
+ *
+ * Programs are deterministic for the same parameters and seed
+ */
+public class SourceGenerator
+{
+	private static final String NEW_LINE = "\r\n";
+
+	private final int classesPerUnit;
+	private final int methodsPerUnit;
+	private final int expressionDepth;
+
+	private final Random random;
+
+	public SourceGenerator(int classesPerUnit, int methodsPerUnit, int expressionDepth, long seed)
+	{
+		this.classesPerUnit = classesPerUnit;
+		this.methodsPerUnit = methodsPerUnit;
+		this.expressionDepth = expressionDepth;
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Program source at least the given number of bytes long,
+	 * it overshoots the size by at most one unit
+	 */
+	public String generate(long size)
+	{
+		StringBuilder classes = new StringBuilder();
+		StringBuilder methods = new StringBuilder();
+
+		int units = 0;
+
+		while (units == 0 || classes.length() + methods.length() < size)
+		{
+			for (int i = 0; i < classesPerUnit; i++) appendClass(classes, units, i);
+			for (int i = 0; i < methodsPerUnit; i++) appendMethod(methods, units, i);
+
+			units++;
+		}
+
+		StringBuilder program = new StringBuilder(classes.length() + methods.length() + 128);
+
+		program.append("program Generated").append(NEW_LINE);
+		program.append("\tconst int limit = 10;").append(NEW_LINE);
+		program.append("\tint total;").append(NEW_LINE);
+		program.append(classes);
+		program.append('{').append(NEW_LINE);
+		program.append(methods);
+		program.append("\tvoid main()").append(NEW_LINE);
+		program.append("\t{").append(NEW_LINE);
+		program.append("\t\ttotal = 0;").append(NEW_LINE);
+		program.append("\t\tprint(total);").append(NEW_LINE);
+		program.append("\t}").append(NEW_LINE);
+		program.append('}').append(NEW_LINE);
+
+		return program.toString();
+	}
+
+	private void appendClass(StringBuilder builder, int unit, int index)
+	{
+		String name = "C" + unit + "_" + index;
+
+		builder.append("\tclass ").append(name).append(NEW_LINE);
+		builder.append("\t{").append(NEW_LINE);
+		builder.append("\t\tint x, y;").append(NEW_LINE);
+		builder.append("\t\t").append(name).append(" next;").append(NEW_LINE);
+		builder.append("\t\t{").append(NEW_LINE);
+
+		builder.append("\t\t\tint get(int a)").append(NEW_LINE);
+		builder.append("\t\t\t{").append(NEW_LINE);
+		builder.append("\t\t\t\treturn ").append(expression(expressionDepth, "x", "y", "a")).append(';').append(NEW_LINE);
+		builder.append("\t\t\t}").append(NEW_LINE);
+
+		builder.append("\t\t\tvoid set(int a, int b)").append(NEW_LINE);
+		builder.append("\t\t\t{").append(NEW_LINE);
+		builder.append("\t\t\t\tx = ").append(expression(expressionDepth, "a", "b", "y")).append(';').append(NEW_LINE);
+		builder.append("\t\t\t\tif (x > b) y = x; else y = b;").append(NEW_LINE);
+		builder.append("\t\t\t}").append(NEW_LINE);
+
+		builder.append("\t\t}").append(NEW_LINE);
+		builder.append("\t}").append(NEW_LINE);
+	}
+
+	private void appendMethod(StringBuilder builder, int unit, int index)
+	{
+		builder.append("\tint m").append(unit).append('_').append(index).append("(int a, int b)").append(NEW_LINE);
+		builder.append("\t\tint i, s;").append(NEW_LINE);
+		builder.append("\t\tint values[];").append(NEW_LINE);
+		builder.append("\t{").append(NEW_LINE);
+		builder.append("\t\ts = 0;").append(NEW_LINE);
+		builder.append("\t\tvalues = new int[limit];").append(NEW_LINE);
+		builder.append("\t\tfor (i = 0; i < limit; i++)").append(NEW_LINE);
+		builder.append("\t\t{").append(NEW_LINE);
+		builder.append("\t\t\tvalues[i] = ").append(expression(expressionDepth, "a", "b", "i")).append(';').append(NEW_LINE);
+		builder.append("\t\t\tif (values[i] > s && i != b) s = s + values[i];").append(NEW_LINE);
+		builder.append("\t\t\telse s--;").append(NEW_LINE);
+		builder.append("\t\t}").append(NEW_LINE);
+		builder.append("\t\treturn s;").append(NEW_LINE);
+		builder.append("\t}").append(NEW_LINE);
+	}
+
+	private String expression(int depth, String first, String second, String third)
+	{
+		if (depth == 0)
+		{
+			switch (random.nextInt(4))
+			{
+			case 0:  return first;
+			case 1:  return second;
+			case 2:  return third;
+			default: return Integer.toString(random.nextInt(100) + 1);
+			}
+		}
+
+		String left  = expression(depth - 1, first, second, third);
+		String right = expression(depth - 1, first, second, third);
+
+		switch (random.nextInt(4))
+		{
+		case 0:  return left + " + " + right;
+		case 1:  return left + " - " + right;
+		case 2:  return "(" + left + ") * " + right;
+		default: return "(" + left + " + " + right + ") % 97";
+		}
+	}
+
+	/**
+	 * Writes a generated program to a file, for feeding it to Main
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		Options options = new Options(args);
+
+		if (options.getArguments().size() != 1)
+		{
+			System.err.println("Program should be called with one argument: output_file(.mj).");
+			System.err.println("Available options:");
+			System.err.println("\t-size=bytes\t\tminimal size of the program, default 1048576");
+			System.err.println("\t-classes=count\t\tclasses per unit, default 2");
+			System.err.println("\t-methods=count\t\tglobal methods per unit, default 4");
+			System.err.println("\t-depth=levels\t\tdepth of generated expressions, default 3");
+			System.err.println("\t-seed=number\t\tseed of the random generator, default 0");
+			return;
+		}
+
+		SourceGenerator generator = new SourceGenerator((int) options.getLong("classes", 2),
+														(int) options.getLong("methods", 4),
+														(int) options.getLong("depth", 3),
+														options.getLong("seed", 0));
+
+		String source = generator.generate(options.getLong("size", 1 << 20));
+
+		try (OutputStream output = new FileOutputStream(options.getArguments().get(0)))
+		{
+			output.write(source.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+}
@@ -0,0 +1,19 @@
+#!/bin/sh
+# Interprets intermediate code, starting from the archive built by
+# 'ant cds' so classes of the interpreter are not loaded from scratch
+DIR=$(cd "$(dirname "$0")" && pwd)
+BUILD="$DIR/build"
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+
+if [ ! -f "$BUILD/interpreter.jar" ]; then
+	echo "Interpreter is not built, run 'ant cds' first." >&2
+	exit 1
+fi
+
+if [ -f "$BUILD/interpreter.aot" ]; then
+	ARCHIVE="-XX:AOTCache=$BUILD/interpreter.aot"
+elif [ -f "$BUILD/interpreter.jsa" ]; then
+	ARCHIVE="-XX:SharedArchiveFile=$BUILD/interpreter.jsa"
+fi
+
+exec "$JAVA" $ARCHIVE -cp "$BUILD/interpreter.jar" interpreter.Interpreter "$@"
@@ -3,10 +3,12 @@ package interpreter;
 import interpreter.ast.*;
 import interpreter.ir.Expression;
 import interpreter.ir.Statement;
+import interpreter.optimizer.OptimizationPass;
 import interpreter.symbols.Symbol;
 import interpreter.symbols.SymbolTable;
 import interpreter.symbols.Type;
 
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
@@ -16,6 +18,28 @@ public class IntermediateCodeGenerator extends VisitorAdaptor
 {
 	private static final String ENTRY_POINT = "main";
 
+	/**
+	 * Operations by class of the operator node they are written with
+	 */
+	private static final Map<Class<? extends SyntaxNode>, Expression.Binary.Operation> BINARY_OPERATIONS = new HashMap<>();
+
+	static
+	{
+		BINARY_OPERATIONS.put(Equal.class, Expression.Binary.Operation.EQUAL);
+		BINARY_OPERATIONS.put(NotEqual.class, Expression.Binary.Operation.NOT_EQUAL);
+		BINARY_OPERATIONS.put(Greater.class, Expression.Binary.Operation.GREATER);
+		BINARY_OPERATIONS.put(GreaterEqual.class, Expression.Binary.Operation.GREATER_EQUAL);
+		BINARY_OPERATIONS.put(Less.class, Expression.Binary.Operation.LESS);
+		BINARY_OPERATIONS.put(LessEqual.class, Expression.Binary.Operation.LESS_EQUAL);
+
+		BINARY_OPERATIONS.put(Addition.class, Expression.Binary.Operation.ADDITION);
+		BINARY_OPERATIONS.put(Subtraction.class, Expression.Binary.Operation.SUBTRACTION);
+
+		BINARY_OPERATIONS.put(Multiplication.class, Expression.Binary.Operation.MULTIPLICATION);
+		BINARY_OPERATIONS.put(Division.class, Expression.Binary.Operation.DIVISION);
+		BINARY_OPERATIONS.put(Modulus.class, Expression.Binary.Operation.MODULUS);
+	}
+
 	private final SymbolTable symbolTable;
 
 	private final Stack<Expression> expressionStack = new Stack<>();
@@ -28,6 +52,11 @@ public class IntermediateCodeGenerator extends VisitorAdaptor
 
 	private Statement.Program intermediateCode;
 
+	/**
+	 * Code of method bodies generated apart from declarations
+	 */
+	private Map<MethodDecl, LinkedList<Statement>> bodies = Collections.emptyMap();
+
 	public IntermediateCodeGenerator(SymbolTable symbolTable)
 	{
 		this.symbolTable = symbolTable;
@@ -38,18 +67,46 @@ public class IntermediateCodeGenerator extends VisitorAdaptor
 		program.traverseBottomUp(this);
 	}
 
+	/**
+	 * Generates code of a program whose method bodies have been
+	 * detached, taking their code from the given map instead
+	 */
+	public void generate(Program program, Map<MethodDecl, LinkedList<Statement>> bodies)
+	{
+		this.bodies = bodies;
+		program.traverseBottomUp(this);
+		this.bodies = Collections.emptyMap();
+	}
+
+	/**
+	 * Generates statements of an analyzed method body, bodies do not
+	 * look anything up in the symbol table so each of them can be
+	 * generated by its own generator at the same time
+	 */
+	public LinkedList<Statement> generate(StatementList body)
+	{
+		statementStack.push(new LinkedList<>());
+		body.traverseBottomUp(this);
+
+		return statementStack.pop();
+	}
+
 	public Statement.Program getIntermediateCode()
 	{
 		return intermediateCode;
 	}
 
-	public void writeIRFile(String fileName) throws IOException
+	public void optimize(OptimizationPass pass)
 	{
-		ObjectOutputStream output = new ObjectOutputStream(new FileOutputStream(fileName));
-
-		output.writeObject(intermediateCode);
+		intermediateCode = pass.optimize(intermediateCode);
+	}
 
-		output.close();
+	public void writeIRFile(String fileName) throws IOException
+	{
+		try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(fileName))))
+		{
+			output.writeObject(intermediateCode);
+		}
 	}
 
 	//////////////////////////////////////
@@ -76,14 +133,9 @@ public class IntermediateCodeGenerator extends VisitorAdaptor
 		}
 	}
 
-	private Expression.Binary.Operation getBinaryOperation(Object object)
+	private Expression.Binary.Operation getBinaryOperation(SyntaxNode operator)
 	{
-		final String regex = "([a-z])([A-Z])";
-		final String replacement = "$1_$2";
-
-		final String className = object.getClass().getSimpleName();
-
-		return Expression.Binary.Operation.valueOf(className.replaceAll(regex, replacement).toUpperCase());
+		return BINARY_OPERATIONS.get(operator.getClass());
 	}
 
 	private void createClassStatement(int line)
@@ -402,6 +454,9 @@ public class IntermediateCodeGenerator extends VisitorAdaptor
 	@Override
 	public void visit(MethodDecl methodDecl)
 	{
+		LinkedList<Statement> body = bodies.get(methodDecl);
+		if (body != null) statementStack.peek().addAll(body);
+
 		createMethodStatement(methodDecl.getLine());
 	}
 
@@ -1,25 +1,83 @@
 package interpreter;
 
+import interpreter.events.CodeLoadEvent;
 import interpreter.ir.Expression;
 import interpreter.ir.Statement;
+import interpreter.metrics.MetricsRegistry;
+import interpreter.optimizer.PurityAnalyzer;
+import interpreter.profiler.ExecutionProfiler;
+import interpreter.profiler.SamplingProfiler;
+import interpreter.profiler.ShadowStack;
 import interpreter.runtime.*;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
+import java.io.*;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Interpreter implements Expression.Visitor<Object>, Statement.Visitor<Void>
 {
 	public static final String THIS = "this";
 
+	public static final int DEFAULT_MEMOIZATION_LIMIT = 1 << 16;
+	public static final int MAXIMAL_MEMOIZATION_LIMIT = 1 << 24;
+
 	private final Environment universe = new Environment();
 	private Environment environment = universe;
 
-	private final Stack<Integer> line = new Stack<>();
-
-	private final Scanner scanner = new Scanner(System.in);
+	/**
+	 * Names the interpreter itself defines, left out of snapshots
+	 */
+	private final Set<String> builtIns;
+
+	/**
+	 * Line of the innermost call being made, built-in methods report
+	 * errors at it since they are not given the call expression
+	 */
+	private int callLine;
+
+	/**
+	 * Streams read and print statements of the program use
+	 */
+	private Scanner scanner = new Scanner(System.in);
+	private PrintStream output = System.out;
+
+	/**
+	 * Stream statistics, profiles and export notices are printed to,
+	 * kept apart from output of the program when it has to be quiet
+	 */
+	private PrintStream reports = System.out;
+
+	/**
+	 * Maximal number of cached results per pure method,
+	 * zero when memoization is turned off
+	 */
+	private int memoizationLimit;
+
+	private Set<Statement.Method> pureMethods = Collections.emptySet();
+	private final Map<String, MemoizedMethod> memoizedMethods = new LinkedHashMap<>();
+
+	/**
+	 * Collects per line and per method statistics, null when profiling is turned off
+	 */
+	private ExecutionProfiler profiler;
+
+	/**
+	 * Samples shadow stack kept by the interpreter, both are null when sampling is turned off
+	 */
+	private SamplingProfiler sampler;
+	private ShadowStack shadowStack;
+
+	/**
+	 * Counts executed code and allocations, null when metrics are turned off
+	 */
+	private MetricsRegistry metrics;
+	private Map<Statement.Method, LongAdder> callCounters;
+	private int callDepth;
+
+	/**
+	 * Limits steps and time of a run, null when the run is unlimited
+	 */
+	private ExecutionBudget budget;
 
 	public Interpreter()
 	{
@@ -29,18 +87,351 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 		{
 			if (arguments.get(0) == null)
 			{
-				throw new InterpretingException(line.peek(), "Null pointer exception!");
+				throw new InterpretingException(callLine, "Null pointer exception!");
 			}
 			return ((RuntimeArray) arguments.get(0)).length();
 		});
 
 		universe.define("null", null);
 		universe.define("eol", System.lineSeparator());
+
+		builtIns = new HashSet<>(universe.getValues().keySet());
 	}
 
 	public void interpret(Statement.Program program)
 	{
-		program.accept(this);
+		prepare(program);
+		run(program, program.statements);
+	}
+
+	/**
+	 * Executes declarations of the program, every statement before
+	 * the call of its entry point, and captures globals they define
+	 */
+	public Snapshot initialize(Statement.Program program)
+	{
+		List<Statement> statements = program.statements;
+
+		prepare(program);
+		run(program, statements.subList(0, statements.size() - 1));
+
+		Map<String, Object> globals = new LinkedHashMap<>();
+
+		for (Map.Entry<String, Object> global : universe.getValues().entrySet())
+		{
+			if (builtIns.contains(global.getKey())) continue;
+
+			Object value = global.getValue();
+
+			// memoization is up to the interpreter restoring the snapshot
+			if (value instanceof MemoizedMethod)
+			{
+				value = ((MemoizedMethod) value).getMethod();
+			}
+
+			globals.put(global.getKey(), value);
+		}
+
+		return new Snapshot(program, globals);
+	}
+
+	/**
+	 * Defines globals of the snapshot and runs
+	 * only the call of the program entry point
+	 */
+	public void resume(Snapshot snapshot)
+	{
+		Statement.Program program = snapshot.getProgram();
+		List<Statement> statements = program.statements;
+
+		prepare(program);
+
+		for (Map.Entry<String, Object> global : snapshot.getGlobals().entrySet())
+		{
+			Object value = global.getValue();
+
+			if (value instanceof RuntimeMethod)
+			{
+				value = memoize((RuntimeMethod) value);
+			}
+
+			universe.define(global.getKey(), value);
+		}
+
+		run(program, statements.subList(statements.size() - 1, statements.size()));
+	}
+
+	private void prepare(Statement.Program program)
+	{
+		if (memoizationLimit > 0)
+		{
+			pureMethods = new PurityAnalyzer().analyze(program);
+		}
+	}
+
+	private void run(Statement.Program program, List<Statement> statements)
+	{
+		if (profiler != null)
+		{
+			profiler.start(program);
+		}
+
+		if (metrics != null)
+		{
+			callCounters = metrics.start(program);
+		}
+
+		if (sampler != null)
+		{
+			sampler.start(program);
+		}
+
+		if (budget != null)
+		{
+			budget.start();
+		}
+
+		long start = System.nanoTime();
+
+		try
+		{
+			for (Statement statement : statements) execute(statement);
+		}
+		finally
+		{
+			if (sampler != null) sampler.stop();
+			if (metrics != null) metrics.recordRun(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Applies runtime options shared by all entry points
+	 */
+	public void configure(Options options)
+	{
+		setReports(Verbosity.of(options).prints(Verbosity.PHASES) ? System.out : System.err);
+
+		if (options.isSet("memoize"))
+		{
+			setMemoizationLimit((int) Math.min(options.getLong("memoize", DEFAULT_MEMOIZATION_LIMIT), MAXIMAL_MEMOIZATION_LIMIT));
+		}
+
+		if (options.isSet("profile"))
+		{
+			setProfiler(new ExecutionProfiler());
+		}
+
+		if (options.isSet("sample"))
+		{
+			setSampler(new SamplingProfiler(Math.max(1, options.getLong("sample", SamplingProfiler.DEFAULT_INTERVAL))));
+		}
+
+		if (options.isSet("metrics"))
+		{
+			setMetrics(new MetricsRegistry());
+		}
+
+		if (options.isSet("steps") || options.isSet("timeout") || options.isSet("heap"))
+		{
+			setBudget(new ExecutionBudget(options.getLong("steps", ExecutionBudget.UNLIMITED),
+										  options.getLong("timeout", ExecutionBudget.UNLIMITED),
+										  options.getLong("heap", ExecutionBudget.UNLIMITED)));
+		}
+	}
+
+	public void setInput(InputStream input)
+	{
+		this.scanner = new Scanner(input);
+	}
+
+	public void setOutput(PrintStream output)
+	{
+		this.output = output;
+	}
+
+	public void setReports(PrintStream reports)
+	{
+		this.reports = reports;
+	}
+
+	public void setMemoizationLimit(int memoizationLimit)
+	{
+		this.memoizationLimit = memoizationLimit;
+	}
+
+	public void setProfiler(ExecutionProfiler profiler)
+	{
+		this.profiler = profiler;
+	}
+
+	public ExecutionProfiler getProfiler()
+	{
+		return profiler;
+	}
+
+	public void setSampler(SamplingProfiler sampler)
+	{
+		this.sampler = sampler;
+		this.shadowStack = sampler == null ? null : sampler.getStack();
+	}
+
+	public SamplingProfiler getSampler()
+	{
+		return sampler;
+	}
+
+	public ShadowStack getShadowStack()
+	{
+		return shadowStack;
+	}
+
+	/**
+	 * Registry may be shared by interpreters running on different threads
+	 */
+	public void setMetrics(MetricsRegistry metrics)
+	{
+		this.metrics = metrics;
+	}
+
+	public MetricsRegistry getMetrics()
+	{
+		return metrics;
+	}
+
+	public void setBudget(ExecutionBudget budget)
+	{
+		this.budget = budget;
+	}
+
+	public ExecutionBudget getBudget()
+	{
+		return budget;
+	}
+
+	/**
+	 * Counts a step against the budget, called on every
+	 * loop iteration and every entry to a method body
+	 */
+	public void checkpoint(int line)
+	{
+		if (budget != null) budget.checkpoint(line);
+	}
+
+	/**
+	 * Whether method calls have to be reported to the interpreter
+	 */
+	public boolean isInstrumented()
+	{
+		return profiler != null || shadowStack != null || metrics != null;
+	}
+
+	public void enterMethod(Statement.Method method)
+	{
+		if (profiler != null) profiler.enterMethod(method);
+		if (shadowStack != null) shadowStack.push(method, callLine);
+		if (metrics != null) metrics.recordCall(callCounters.get(method), ++callDepth);
+	}
+
+	public void exitMethod()
+	{
+		if (metrics != null) callDepth--;
+		if (shadowStack != null) shadowStack.pop();
+		if (profiler != null) profiler.exitMethod();
+	}
+
+	public Map<String, MemoizedMethod> getMemoizedMethods()
+	{
+		return memoizedMethods;
+	}
+
+	public void printMemoizationStatistics()
+	{
+		if (memoizationLimit == 0) return;
+
+		reports.println("Memoized methods: " + memoizedMethods.size());
+
+		for (MemoizedMethod method : memoizedMethods.values())
+		{
+			MemoTable table = method.getTable();
+
+			reports.println("\t" + method.getName() + ": " + table.getHits() + " hits, " +
+							table.getMisses() + " misses, " + table.size() + " cached results");
+		}
+	}
+
+	/**
+	 * Prints hotspots and writes collapsed stacks of the execution
+	 * to the given file, does nothing when profiling is turned off
+	 */
+	public void printProfile(String collapsedStacksFileName)
+	{
+		if (profiler == null) return;
+
+		reports.println();
+		reports.println("========================= Profile ===================================");
+		reports.println();
+
+		profiler.printHotspots(reports, ExecutionProfiler.DEFAULT_HOTSPOTS);
+
+		try
+		{
+			profiler.writeCollapsedStacks(collapsedStacksFileName);
+
+			reports.println();
+			reports.println("Collapsed stacks written to file '" + collapsedStacksFileName + "'.");
+		}
+		catch (IOException exception)
+		{
+			System.err.println(exception.getMessage());
+		}
+	}
+
+	/**
+	 * Prints hotspots found by sampling and writes sampled stacks
+	 * to the given file, does nothing when sampling is turned off
+	 */
+	public void printSamplingProfile(String collapsedStacksFileName)
+	{
+		if (sampler == null) return;
+
+		reports.println();
+		reports.println("========================= Sampling Profile ==========================");
+		reports.println();
+
+		sampler.printHotspots(reports, ExecutionProfiler.DEFAULT_HOTSPOTS);
+
+		try
+		{
+			sampler.writeCollapsedStacks(collapsedStacksFileName);
+
+			reports.println();
+			reports.println("Sampled stacks written to file '" + collapsedStacksFileName + "'.");
+		}
+		catch (IOException exception)
+		{
+			System.err.println(exception.getMessage());
+		}
+	}
+
+	/**
+	 * Exports collected metrics to the given file or endpoint,
+	 * does nothing when metrics are turned off
+	 */
+	public void writeMetrics(String target)
+	{
+		if (metrics == null) return;
+
+		try
+		{
+			metrics.export(target);
+
+			reports.println();
+			reports.println("Metrics written to '" + target + "'.");
+		}
+		catch (IOException exception)
+		{
+			System.err.println(exception.getMessage());
+		}
 	}
 
 	public void execute(List<Statement> statements, Environment environment)
@@ -69,21 +460,63 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 
 	private Object evaluate(Expression expression)
 	{
-		line.push(expression.line);
-
-		Object object = expression.accept(this);
+		if (metrics != null)
+		{
+			metrics.recordExpression();
+		}
 
-		line.pop();
-		return object;
+		return expression.accept(this);
 	}
 
 	private void execute(Statement statement)
 	{
-		line.push(statement.line);
+		if (metrics != null)
+		{
+			metrics.recordStatement();
+		}
 
-		statement.accept(this);
+		if (profiler == null)
+		{
+			statement.accept(this);
+		}
+		else
+		{
+			profiler.enterStatement(statement.line);
 
-		line.pop();
+			try
+			{
+				statement.accept(this);
+			}
+			finally
+			{
+				profiler.exitStatement();
+			}
+		}
+	}
+
+	/**
+	 * Charges an allocation to the budget before it is made and
+	 * records it in metrics
+	 */
+	private void allocate(int line, String type, long bytes)
+	{
+		if (budget != null) budget.allocate(line, bytes);
+		if (metrics != null) metrics.recordAllocation(type, bytes);
+	}
+
+	/**
+	 * Wraps a pure method into a cache of its results when memoization is on
+	 */
+	private RuntimeCallable memoize(RuntimeMethod method)
+	{
+		Statement.Method declaration = method.getDeclaration();
+
+		if (!pureMethods.contains(declaration)) return method;
+
+		MemoizedMethod memoizedMethod = new MemoizedMethod(declaration.name, method, memoizationLimit);
+		memoizedMethods.put(declaration.name, memoizedMethod);
+
+		return memoizedMethod;
 	}
 
 	private boolean areEqual(Object a, Object b)
@@ -195,6 +628,15 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 		case MODULUS:
 			result = (int) left % (int) right;
 			break;
+		case SHIFT_LEFT:
+			result = (int) left << (int) right;
+			break;
+		case SHIFT_RIGHT:
+			result = (int) left >> (int) right;
+			break;
+		case BITWISE_AND:
+			result = (int) left & (int) right;
+			break;
 		case EQUAL:
 			result = areEqual(left, right);
 			break;
@@ -231,6 +673,7 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 			arguments.add(evaluate(argument));
 		}
 
+		callLine = expression.line;
 		return callee.call(this, arguments);
 	}
 
@@ -284,11 +727,29 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	{
 		if (expression.size == null)
 		{
-			return new RuntimeInstance((RuntimeClass) environment.get(expression.type));
+			RuntimeClass runtimeClass = (RuntimeClass) environment.get(expression.type);
+
+			if (budget != null || metrics != null)
+			{
+				allocate(expression.line, runtimeClass.getName(), RuntimeInstance.estimateSize(runtimeClass));
+			}
+
+			return new RuntimeInstance(runtimeClass);
 		}
 		else
 		{
 			int size = (int) evaluate(expression.size);
+
+			if (size < 0)
+			{
+				throw new InterpretingException(expression.line, "Negative array size!");
+			}
+
+			if (budget != null || metrics != null)
+			{
+				allocate(expression.line, expression.type + "[]", RuntimeArray.estimateSize(expression.type, size));
+			}
+
 			return new RuntimeArray(size);
 		}
 	}
@@ -414,6 +875,12 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	@Override
 	public Void visit(Statement.Decrement statement)
 	{
+		if (statement.number instanceof Expression.Variable)
+		{
+			environment.decrement(((Expression.Variable) statement.number).name);
+			return null;
+		}
+
 		int value = (int) evaluate(statement.number) - 1;
 		assign(statement.number, value);
 		return null;
@@ -429,6 +896,13 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 
 		while (isTrue(evaluate(statement.condition)))
 		{
+			checkpoint(statement.line);
+
+			if (shadowStack != null)
+			{
+				shadowStack.setLine(statement.line);
+			}
+
 			try
 			{
 				execute(statement.body);
@@ -468,6 +942,12 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	@Override
 	public Void visit(Statement.Increment statement)
 	{
+		if (statement.number instanceof Expression.Variable)
+		{
+			environment.increment(((Expression.Variable) statement.number).name);
+			return null;
+		}
+
 		int value = (int) evaluate(statement.number) + 1;
 		assign(statement.number, value);
 		return null;
@@ -476,8 +956,7 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	@Override
 	public Void visit(Statement.Method statement)
 	{
-		RuntimeMethod method = new RuntimeMethod(statement);
-		environment.define(statement.name, method);
+		environment.define(statement.name, memoize(new RuntimeMethod(statement)));
 		return null;
 	}
 
@@ -485,16 +964,16 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	public Void visit(Statement.Print statement)
 	{
 		Object value  = evaluate(statement.expression);
-		String output = value.toString();
+		String text   = value.toString();
 
 		Integer width = statement.width;
 
 		if (width != null)
 		{
-			for (int i = 0; i < width - output.length(); i++) System.out.print(' ');
+			for (int i = 0; i < width - text.length(); i++) output.print(' ');
 		}
 
-		System.out.print(output);
+		output.print(text);
 		return null;
 	}
 
@@ -538,16 +1017,42 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 		}
 	}
 
+	@Override
+	public Void visit(Statement.TailCall statement)
+	{
+		List<Object> arguments = new ArrayList<>();
+
+		for (Expression argument : statement.arguments)
+		{
+			arguments.add(evaluate(argument));
+		}
+
+		throw new TailCall(arguments);
+	}
+
 	//////////////////////////////////////
 	/////// STANDALONE APPLICATION ///////
 	//////////////////////////////////////
 
 	public static void main(String[] args)
 	{
+		Options options = new Options(args);
+		args = options.getArguments().toArray(new String[0]);
+
 		if (args.length != 1)
 		{
 			System.err.println("Wrong number of arguments!");
 			System.err.println("Program should be called with exactly one argument: input_file(.ir).");
+			System.err.println("Available options:");
+			System.err.println("\t-memoize[=limit]\tcache results of pure methods with integer parameters");
+			System.err.println("\t-profile[=file]\t\tprofile lines and methods, write collapsed stacks to file");
+			System.err.println("\t-sample[=interval]\tsample executing methods every interval microseconds");
+			System.err.println("\t-metrics[=target]\texport execution metrics to a file or http endpoint");
+			System.err.println("\t-steps=count\t\tabort after count loop iterations and method calls");
+			System.err.println("\t-timeout=milliseconds\tabort after running for the given time");
+			System.err.println("\t-heap=bytes\t\tabort after allocating more than the given bytes");
+			System.err.println("\t-snapshot[=file]\tstart from the program initialized by an earlier run");
+			System.err.println("\t-quiet\t\t\tprint only errors and output of the program");
 			return;
 		}
 
@@ -560,6 +1065,8 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 			return;
 		}
 
+		PrintStream log = Verbosity.of(options).prints(Verbosity.PHASES) ? System.out : new PrintStream(OutputStream.nullOutputStream());
+
 		ObjectInputStream inputStream = null;
 
 		try
@@ -572,23 +1079,85 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 				return;
 			}
 
-			System.out.println("Reading intermediate code from file '" + inputFileName + "'...");
+			Statement.Program intermediateCode = null;
+			Snapshot snapshot = null;
 
-			inputStream = new ObjectInputStream(new FileInputStream(inputFile));
-			Statement.Program intermediateCode = (Statement.Program) inputStream.readObject();
+			String snapshotFileName = options.getValue("snapshot", inputFileName.replace(".ir", ".snapshot"));
 
-			System.out.println("Finished reading IR file.");
-			System.out.println("Interpreting intermediate code...");
-			System.out.println();
+			String source = options.isSet("snapshot") ? Snapshot.identify(inputFile) : null;
+
+			if (options.isSet("snapshot") && new File(snapshotFileName).exists())
+			{
+				log.println("Restoring initialized program from file '" + snapshotFileName + "'...");
+
+				try
+				{
+					snapshot = Snapshot.read(snapshotFileName);
+				}
+				catch (InvalidClassException exception)
+				{
+					// written by another version of the interpreter
+					snapshot = null;
+				}
+
+				// snapshot of another program or of older code is stale
+				if (snapshot != null && snapshot.isTakenFrom(source))
+				{
+					log.println("Finished restoring snapshot.");
+				}
+				else
+				{
+					log.println("Snapshot does not match the intermediate code and is taken again.");
+					snapshot = null;
+				}
+			}
+
+			if (snapshot == null)
+			{
+				log.println("Reading intermediate code from file '" + inputFileName + "'...");
+
+				CodeLoadEvent loading = new CodeLoadEvent();
+				loading.begin();
+
+				inputStream = new ObjectInputStream(new BufferedInputStream(new FileInputStream(inputFile)));
+				intermediateCode = (Statement.Program) inputStream.readObject();
+
+				loading.file = inputFileName;
+				loading.size = inputFile.length();
+				loading.commit();
+
+				log.println("Finished reading IR file.");
+
+				if (options.isSet("snapshot"))
+				{
+					snapshot = new Interpreter().initialize(intermediateCode);
+					snapshot.setSource(source);
+					snapshot.write(snapshotFileName);
+
+					log.println("Initialized program written to file '" + snapshotFileName + "'.");
+				}
+			}
+
+			log.println("Interpreting intermediate code...");
+			log.println();
 
 			Interpreter interpreter = new Interpreter();
+			interpreter.configure(options);
 
 			try
 			{
-				interpreter.interpret(intermediateCode);
+				if (snapshot == null)
+				{
+					interpreter.interpret(intermediateCode);
+				}
+				else
+				{
+					interpreter.resume(snapshot);
+				}
 
-				System.out.println();
-				System.out.println("Interpretation finished successfully!");
+				log.println();
+				log.println("Interpretation finished successfully!");
+				interpreter.printMemoizationStatistics();
 			}
 			catch (InterpretingException exception)
 			{
@@ -596,6 +1165,10 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 				System.err.println(exception.getMessage());
 				System.err.println("Interpretation aborted with an error!");
 			}
+
+			interpreter.printProfile(options.getValue("profile", inputFileName.replace(".ir", ".collapsed")));
+			interpreter.printSamplingProfile(inputFileName.replace(".ir", ".samples"));
+			interpreter.writeMetrics(options.getValue("metrics", inputFileName.replace(".ir", ".prom")));
 		}
 		catch (IOException | ClassNotFoundException exception)
 		{
@@ -2,22 +2,49 @@ package interpreter;
 
 import interpreter.ast.Program;
 import interpreter.ast.SyntaxNode;
+import interpreter.events.CompilePhaseEvent;
 import interpreter.lexer.Yylex;
+import interpreter.optimizer.Optimizer;
 import interpreter.parser.Parser;
 import interpreter.runtime.InterpretingException;
 import interpreter.symbols.SymbolTable;
 import java_cup.runtime.Symbol;
 
 import java.io.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
 
 public class Main
 {
+	private static final String WRITE_SYNC = "sync";
+	private static final String WRITE_ASYNC = "async";
+	private static final String WRITE_SKIP = "skip";
+
 	public static void main(String[] args) throws Exception
 	{
+		Options options = new Options(args);
+		args = options.getArguments().toArray(new String[0]);
+
 		if (args.length < 2 || args.length > 3)
 		{
 			System.err.println("Wrong number of arguments!");
 			System.err.println("Program should be called with two or three arguments: input_file(.mj) to_interpret(true/false) [output_file(.ir)].");
+			System.err.println("Available options:");
+			System.err.println("\t-optimize\t\tinline small methods before writing intermediate code");
+			System.err.println("\t-tco\t\t\teliminate self tail calls, implied by -optimize");
+			System.err.println("\t-stream\t\t\tcompile in a single pass without keeping the whole syntax tree");
+			System.err.println("\t-parallel[=threads]\tanalyze and generate method bodies on the given number of threads");
+			System.err.println("\t-memoize[=limit]\tcache results of pure methods with integer parameters");
+			System.err.println("\t-profile[=file]\t\tprofile lines and methods, write collapsed stacks to file");
+			System.err.println("\t-sample[=interval]\tsample executing methods every interval microseconds");
+			System.err.println("\t-metrics[=target]\texport execution metrics to a file or http endpoint");
+			System.err.println("\t-steps=count\t\tabort after count loop iterations and method calls");
+			System.err.println("\t-timeout=milliseconds\tabort after running for the given time");
+			System.err.println("\t-heap=bytes\t\tabort after allocating more than the given bytes");
+			System.err.println("\t-verbosity=level\tprint quiet, phases, dumps or tokens (default) besides errors");
+			System.err.println("\t-quiet\t\t\tprint only errors and output of the program");
+			System.err.println("\t-write=mode\t\twrite intermediate code before interpreting it (sync, default), while interpreting it (async) or not at all (skip)");
 			return;
 		}
 
@@ -50,6 +77,27 @@ public class Main
 			return;
 		}
 
+		String writeMode = options.getValue("write", WRITE_SYNC);
+
+		if (!writeMode.equals(WRITE_SYNC) && !writeMode.equals(WRITE_ASYNC) && !writeMode.equals(WRITE_SKIP))
+		{
+			throw new IllegalArgumentException("Option '-write' expects one of sync, async or skip but was given '" + writeMode + "'.");
+		}
+
+		// there is nothing to overlap the write with or to use the code for
+		// without it if the code is not interpreted
+		if (!toInterpret) writeMode = WRITE_SYNC;
+
+		Verbosity verbosity = Verbosity.of(options);
+		PrintStream log = verbosity.prints(Verbosity.PHASES) ? System.out : new PrintStream(OutputStream.nullOutputStream());
+
+		ForkJoinPool pool = null;
+
+		if (options.isSet("parallel"))
+		{
+			pool = new ForkJoinPool((int) options.getLong("parallel", Runtime.getRuntime().availableProcessors()));
+		}
+
 		Reader reader = null;
 
 		try
@@ -62,76 +110,76 @@ public class Main
 				return;
 			}
 
-			System.out.println("Interpreting source file: " + sourceFile.getAbsolutePath());
+			log.println("Interpreting source file: " + sourceFile.getAbsolutePath());
 
-			reader = new BufferedReader(new FileReader(sourceFile));
-			Yylex lexer = new Yylex(reader);
-			Parser parser = new Parser(lexer);
+			SymbolTable symbolTable = new SymbolTable();
 
-			System.out.println("========================= Syntax Analysis ===========================");
+			reader = new BufferedReader(new FileReader(sourceFile));
+			Yylex lexer = new Yylex(reader, symbolTable.getNames());
 
-			Symbol symbol = parser.parse();
-			SyntaxNode root = (SyntaxNode) symbol.value;
+			IntermediateCodeGenerator generator;
 
-			if (!(root instanceof Program))
+			if (options.isSet("stream"))
 			{
-				System.err.println("Syntax error! Interpretation cannot continue!");
-				return;
+				generator = compileInOnePass(lexer, symbolTable, inputFileName, verbosity, log);
 			}
-
-			Program program = (Program) root;
-
-			System.out.println(program.toString(""));
-
-			if (!parser.isSyntacticallyCorrect())
+			else
 			{
-				System.err.println("Syntax error! Interpretation cannot continue!");
-				return;
+				generator = compile(lexer, symbolTable, inputFileName, verbosity, log, pool);
 			}
 
-			System.out.println("========================= Semantic Analysis =========================");
+			if (generator == null) return;
 
-			SymbolTable symbolTable = new SymbolTable();
-			SemanticAnalyzer analyzer = new SemanticAnalyzer(symbolTable);
+			CompilePhaseEvent optimization = CompilePhaseEvent.start(CompilePhaseEvent.OPTIMIZATION, inputFileName);
 
-			analyzer.analyze(program);
+			generator.optimize(Optimizer.of(options.isSet("optimize"), options.isSet("tco")));
 
-			symbolTable.dump();
+			optimization.commit();
 
-			if (!analyzer.isSemanticallyCorrect())
+			if (options.isSet("optimize"))
 			{
-				System.err.println("Semantic error! Interpretation cannot continue!");
-				return;
+				log.println("Intermediate code optimized.");
 			}
 
-			System.out.println("================== Intermediate Code Generation =====================");
-			System.out.println();
+			FutureTask<Void> writing = null;
 
-			IntermediateCodeGenerator generator = new IntermediateCodeGenerator(symbolTable);
+			if (writeMode.equals(WRITE_SKIP))
+			{
+				log.println("Writing intermediate code skipped.");
+			}
+			else if (writeMode.equals(WRITE_ASYNC))
+			{
+				log.println("Writing intermediate code to file '" + outputFileName + "' while interpreting it...");
 
-			generator.generate(program);
+				writing = new FutureTask<>(() -> writeIRFile(generator, outputFileName));
+				new Thread(writing, "intermediate code writer").start();
+			}
+			else
+			{
+				log.println("Writing intermediate code to file '" + outputFileName + "'...");
 
-			System.out.println("Intermediate code successfully generated.");
-			System.out.println("Writing intermediate code to file '" + outputFileName + "'...");
+				writeIRFile(generator, outputFileName);
 
-			generator.writeIRFile(outputFileName);
+				log.println("Finished writing IR file.");
+			}
 
-			System.out.println("Finished writing IR file.");
-			System.out.println();
+			log.println();
 
 			if (toInterpret)
 			{
-				System.out.println("========================= Interpretation ============================");
-				System.out.println();
+				log.println("========================= Interpretation ============================");
+				log.println();
 
 				Interpreter interpreter = new Interpreter();
+				interpreter.configure(options);
 
 				try
 				{
 					interpreter.interpret(generator.getIntermediateCode());
 
-					System.out.println();
-					System.out.println("Interpretation finished successfully!");
+					log.println();
+					log.println("Interpretation finished successfully!");
+					interpreter.printMemoizationStatistics();
 				}
 				catch (InterpretingException exception)
 				{
@@ -139,15 +187,38 @@ public class Main
 					System.err.println(exception.getMessage());
 					System.err.println("Interpretation aborted with an error!");
 				}
+
+				interpreter.printProfile(options.getValue("profile", inputFileName.replace(".mj", ".collapsed")));
+				interpreter.printSamplingProfile(inputFileName.replace(".mj", ".samples"));
+				interpreter.writeMetrics(options.getValue("metrics", inputFileName.replace(".mj", ".prom")));
+
+				if (writing != null)
+				{
+					try
+					{
+						writing.get();
+
+						log.println("Finished writing IR file.");
+					}
+					catch (ExecutionException exception)
+					{
+						System.err.println(exception.getCause().getMessage());
+					}
+				}
 			}
 			else
 			{
-				System.out.println("Interpretation omitted.");
-				System.out.println("Generated IR file can be interpreted afterwards by passing it as a parameter to the Interpreter application.");
+				log.println("Interpretation omitted.");
+				log.println("Generated IR file can be interpreted afterwards by passing it as a parameter to the Interpreter application.");
 			}
 		}
 		finally
 		{
+			if (pool != null)
+			{
+				pool.shutdown();
+			}
+
 			if (reader != null)
 			{
 				try
@@ -161,4 +232,171 @@ public class Main
 			}
 		}
 	}
+
+	/**
+	 * Interpreter never changes the code, so it can be written while it runs
+	 */
+	private static Void writeIRFile(IntermediateCodeGenerator generator, String outputFileName) throws IOException
+	{
+		CompilePhaseEvent writing = CompilePhaseEvent.start(CompilePhaseEvent.CODE_WRITE, outputFileName);
+		generator.writeIRFile(outputFileName);
+		writing.commit();
+
+		return null;
+	}
+
+	/**
+	 * Runs syntax analysis, semantic analysis and code generation
+	 * one after another, the last two with method bodies spread over
+	 * the given pool if there is one, returns null if the program has
+	 * errors
+	 */
+	private static IntermediateCodeGenerator compile(Yylex lexer, SymbolTable symbolTable, String inputFileName,
+														 Verbosity verbosity, PrintStream log, ForkJoinPool pool) throws Exception
+	{
+		Parser parser = new Parser(lexer);
+		parser.setTokenEcho(verbosity.prints(Verbosity.TOKENS));
+
+		log.println("========================= Syntax Analysis ===========================");
+
+		CompilePhaseEvent parsing = CompilePhaseEvent.start(CompilePhaseEvent.PARSE, inputFileName);
+		Symbol symbol = parser.parse();
+		parsing.commit();
+
+		SyntaxNode root = (SyntaxNode) symbol.value;
+
+		if (!(root instanceof Program))
+		{
+			System.err.println("Syntax error! Interpretation cannot continue!");
+			return null;
+		}
+
+		Program program = (Program) root;
+
+		if (verbosity.prints(Verbosity.DUMPS))
+		{
+			System.out.println(program.toString(""));
+		}
+
+		if (!parser.isSyntacticallyCorrect())
+		{
+			System.err.println("Syntax error! Interpretation cannot continue!");
+			return null;
+		}
+
+		log.println("========================= Semantic Analysis =========================");
+
+		if (pool != null)
+		{
+			return compileInParallel(program, symbolTable, inputFileName, verbosity, log, pool);
+		}
+
+		SemanticAnalyzer analyzer = new SemanticAnalyzer(symbolTable);
+		analyzer.setWarningsReported(verbosity.prints(Verbosity.PHASES));
+
+		CompilePhaseEvent analysis = CompilePhaseEvent.start(CompilePhaseEvent.SEMANTIC_ANALYSIS, inputFileName);
+		analyzer.analyze(program);
+		analysis.commit();
+
+		if (verbosity.prints(Verbosity.DUMPS))
+		{
+			symbolTable.dump();
+		}
+
+		if (!analyzer.isSemanticallyCorrect())
+		{
+			System.err.println("Semantic error! Interpretation cannot continue!");
+			return null;
+		}
+
+		log.println("================== Intermediate Code Generation =====================");
+		log.println();
+
+		IntermediateCodeGenerator generator = new IntermediateCodeGenerator(symbolTable);
+
+		CompilePhaseEvent generation = CompilePhaseEvent.start(CompilePhaseEvent.CODE_GENERATION, inputFileName);
+		generator.generate(program);
+		generation.commit();
+
+		log.println("Intermediate code successfully generated.");
+
+		return generator;
+	}
+
+	/**
+	 * Runs semantic analysis and code generation of a parsed program,
+	 * declarations on this thread and method bodies on the given pool,
+	 * returns null if the program has errors
+	 */
+	private static IntermediateCodeGenerator compileInParallel(Program program, SymbolTable symbolTable, String inputFileName,
+															   Verbosity verbosity, PrintStream log, ForkJoinPool pool)
+	{
+		ParallelCompiler compiler = new ParallelCompiler(symbolTable, pool);
+		compiler.getAnalyzer().setWarningsReported(verbosity.prints(Verbosity.PHASES));
+
+		CompilePhaseEvent compilation = CompilePhaseEvent.start(CompilePhaseEvent.PARALLEL, inputFileName);
+		compiler.compile(program);
+		compilation.commit();
+
+		if (verbosity.prints(Verbosity.DUMPS))
+		{
+			symbolTable.dump();
+		}
+
+		if (!compiler.getAnalyzer().isSemanticallyCorrect())
+		{
+			System.err.println("Semantic error! Interpretation cannot continue!");
+			return null;
+		}
+
+		log.println("================== Intermediate Code Generation =====================");
+		log.println();
+		log.println("Intermediate code successfully generated.");
+
+		return compiler.getGenerator();
+	}
+
+	/**
+	 * Runs all three phases in a single pass over the source, the syntax
+	 * tree is never whole so it is not printed, returns null if the
+	 * program has errors
+	 */
+	private static IntermediateCodeGenerator compileInOnePass(Yylex lexer, SymbolTable symbolTable, String inputFileName,
+																  Verbosity verbosity, PrintStream log) throws Exception
+	{
+		StreamingCompiler compiler = new StreamingCompiler(lexer, symbolTable);
+		compiler.setTokenEcho(verbosity.prints(Verbosity.TOKENS));
+		compiler.getAnalyzer().setWarningsReported(verbosity.prints(Verbosity.PHASES));
+
+		log.println("========================= Syntax Analysis ===========================");
+
+		CompilePhaseEvent compilation = CompilePhaseEvent.start(CompilePhaseEvent.SINGLE_PASS, inputFileName);
+		Symbol symbol = compiler.parse();
+		compilation.commit();
+
+		if (!(symbol.value instanceof Program) || !compiler.isSyntacticallyCorrect())
+		{
+			System.err.println("Syntax error! Interpretation cannot continue!");
+			return null;
+		}
+
+		log.println("========================= Semantic Analysis =========================");
+
+		if (verbosity.prints(Verbosity.DUMPS))
+		{
+			symbolTable.dump();
+		}
+
+		if (!compiler.getAnalyzer().isSemanticallyCorrect())
+		{
+			System.err.println("Semantic error! Interpretation cannot continue!");
+			return null;
+		}
+
+		log.println("================== Intermediate Code Generation =====================");
+		log.println();
+		log.println("Intermediate code successfully generated.");
+
+		return compiler.getGenerator();
+	}
 }
@@ -0,0 +1,72 @@
+package interpreter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits command line arguments into positional
+ * arguments and options of the form -name[=value]
+ */
+public class Options
+{
+	private final List<String> arguments = new ArrayList<>();
+	private final Map<String, String> options = new LinkedHashMap<>();
+
+	public Options(String[] args)
+	{
+		for (String arg : args)
+		{
+			if (arg.startsWith("-") && arg.length() > 1)
+			{
+				int separator = arg.indexOf('=');
+
+				if (separator < 0)
+				{
+					options.put(arg.substring(1), "");
+				}
+				else
+				{
+					options.put(arg.substring(1, separator), arg.substring(separator + 1));
+				}
+			}
+			else
+			{
+				arguments.add(arg);
+			}
+		}
+	}
+
+	public List<String> getArguments()
+	{
+		return arguments;
+	}
+
+	public boolean isSet(String name)
+	{
+		return options.containsKey(name);
+	}
+
+	public String getValue(String name, String defaultValue)
+	{
+		String value = options.get(name);
+		return value == null || value.isEmpty() ? defaultValue : value;
+	}
+
+	public long getLong(String name, long defaultValue)
+	{
+		String value = getValue(name, null);
+
+		if (value == null) return defaultValue;
+
+		try
+		{
+			return Long.parseLong(value);
+		}
+		catch (NumberFormatException exception)
+		{
+			throw new IllegalArgumentException("Option '-" + name + "' expects a number but was given '" + value + "'.");
+		}
+	}
+}
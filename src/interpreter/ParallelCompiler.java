@@ -0,0 +1,122 @@
+package interpreter;
+
+import interpreter.ast.*;
+import interpreter.ir.Statement;
+import interpreter.symbols.SymbolTable;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Analyzes and generates intermediate code of a parsed program with
+ * method bodies handled on a fork join pool
+ *
+ * Bodies are detached from the syntax tree while declarations are
+ * analyzed on the calling thread, every body gets an analyzer which
+ * resolves names against a snapshot of the scopes taken where the
+ * body is, so it sees the same declarations it would in a single
+ * traversal. Bodies only look declarations up, so once they are
+ * all known every body is analyzed and generated on its own and
+ * declarations are generated around the finished bodies
+ */
+public class ParallelCompiler
+{
+	private final SymbolTable symbolTable;
+	private final ForkJoinPool pool;
+
+	private final SemanticAnalyzer analyzer;
+	private final IntermediateCodeGenerator generator;
+
+	public ParallelCompiler(SymbolTable symbolTable, ForkJoinPool pool)
+	{
+		this.symbolTable = symbolTable;
+		this.pool = pool;
+
+		this.analyzer = new SemanticAnalyzer(symbolTable);
+		this.generator = new IntermediateCodeGenerator(symbolTable);
+	}
+
+	public SemanticAnalyzer getAnalyzer()
+	{
+		return analyzer;
+	}
+
+	public IntermediateCodeGenerator getGenerator()
+	{
+		return generator;
+	}
+
+	/**
+	 * Code is generated only if the whole program is semantically
+	 * correct, errors of bodies are reported after all errors of
+	 * declarations, in the order the bodies are declared in
+	 */
+	public void compile(Program program)
+	{
+		List<MethodDecl> methods = new ArrayList<>();
+
+		program.traverseTopDown(new VisitorAdaptor()
+		{
+			@Override
+			public void visit(MethodDecl methodDecl)
+			{
+				methods.add(methodDecl);
+			}
+		});
+
+		List<StatementList> bodies = new ArrayList<>(methods.size());
+
+		for (MethodDecl method : methods)
+		{
+			bodies.add(method.getStatementList());
+			method.setStatementList(null);
+		}
+
+		try
+		{
+			Map<MethodDecl, SemanticAnalyzer> analyzers = analyzer.analyzeDeclarations(program);
+			List<ForkJoinTask<LinkedList<Statement>>> tasks = new ArrayList<>(methods.size());
+
+			for (int i = 0; i < methods.size(); i++)
+			{
+				SemanticAnalyzer bodyAnalyzer = analyzers.get(methods.get(i));
+				StatementList body = bodies.get(i);
+
+				tasks.add(pool.submit(() -> compile(bodyAnalyzer, body)));
+			}
+
+			Map<MethodDecl, LinkedList<Statement>> code = new IdentityHashMap<>();
+
+			for (int i = 0; i < methods.size(); i++)
+			{
+				code.put(methods.get(i), tasks.get(i).join());
+				analyzer.merge(analyzers.get(methods.get(i)));
+			}
+
+			if (analyzer.isSemanticallyCorrect())
+			{
+				generator.generate(program, code);
+			}
+		}
+		finally
+		{
+			for (int i = 0; i < methods.size(); i++)
+			{
+				methods.get(i).setStatementList(bodies.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Code of the body or null if the body has errors
+	 */
+	private LinkedList<Statement> compile(SemanticAnalyzer bodyAnalyzer, StatementList body)
+	{
+		bodyAnalyzer.analyzeBody(body);
+
+		if (!bodyAnalyzer.isSemanticallyCorrect()) return null;
+
+		return new IntermediateCodeGenerator(symbolTable).generate(body);
+	}
+}
@@ -1,17 +1,20 @@
 package interpreter;
 
 import interpreter.ast.*;
+import interpreter.symbols.ScopeSnapshot;
 import interpreter.symbols.Symbol;
 import interpreter.symbols.SymbolTable;
 import interpreter.symbols.Type;
 
-import java.util.Stack;
+import java.io.PrintStream;
+import java.util.*;
 
 public class SemanticAnalyzer extends VisitorAdaptor
 {
 	private static final String THIS = "this";
 
 	private boolean errorDetected;
+	private boolean warningsReported = true;
 
 	private boolean mainFound;
 
@@ -20,6 +23,26 @@ public class SemanticAnalyzer extends VisitorAdaptor
 
 	private final SymbolTable symbolTable;
 
+	/**
+	 * Scopes a method body is analyzed in when it is analyzed
+	 * apart from declarations, null when the whole program is
+	 * analyzed in a single traversal
+	 */
+	private final ScopeSnapshot scopes;
+
+	/**
+	 * Analyzers of method bodies left out of the declaration pass
+	 */
+	private Map<MethodDecl, SemanticAnalyzer> bodies;
+
+	/**
+	 * Errors and warnings of a body analyzed apart from declarations,
+	 * kept until they can be printed in the order of the bodies
+	 */
+	private final List<String> reports;
+
+	private PrintStream diagnostics = System.out;
+
 	private Type currentType = SymbolTable.NO_TYPE;
 	private Type currentMethodReturnType = SymbolTable.NO_TYPE;
 	private Type currentBaseClassType = SymbolTable.NO_TYPE;
@@ -49,6 +72,25 @@ public class SemanticAnalyzer extends VisitorAdaptor
 	public SemanticAnalyzer(SymbolTable symbolTable)
 	{
 		this.symbolTable = symbolTable;
+		this.scopes = null;
+		this.reports = null;
+	}
+
+	/**
+	 * Analyzer of the body of the method the given
+	 * declaration analyzer has just entered
+	 */
+	private SemanticAnalyzer(SemanticAnalyzer declarations)
+	{
+		this.symbolTable = declarations.symbolTable;
+		this.scopes = declarations.symbolTable.snapshot();
+		this.reports = new ArrayList<>();
+
+		this.warningsReported = declarations.warningsReported;
+
+		this.currentClass = declarations.currentClass;
+		this.currentMethod = declarations.currentMethod;
+		this.currentMethodReturnType = declarations.currentMethodReturnType;
 	}
 
 	public void analyze(Program program)
@@ -56,6 +98,57 @@ public class SemanticAnalyzer extends VisitorAdaptor
 		program.traverseBottomUp(this);
 	}
 
+	/**
+	 * Analyzes a program whose method bodies have been detached, returns
+	 * analyzers for those bodies in the order of their declarations
+	 */
+	public Map<MethodDecl, SemanticAnalyzer> analyzeDeclarations(Program program)
+	{
+		bodies = new LinkedHashMap<>();
+		program.traverseBottomUp(this);
+
+		Map<MethodDecl, SemanticAnalyzer> result = bodies;
+		bodies = null;
+
+		return result;
+	}
+
+	/**
+	 * Analyzes a body this analyzer was created for, it only looks
+	 * declarations up so bodies can be analyzed at the same time
+	 */
+	public void analyzeBody(StatementList body)
+	{
+		body.traverseBottomUp(this);
+	}
+
+	/**
+	 * Reports errors of an analyzed body as errors of the whole program
+	 */
+	public void merge(SemanticAnalyzer body)
+	{
+		for (String report : body.reports) report(report);
+
+		errorDetected |= body.errorDetected;
+	}
+
+	/**
+	 * Warnings do not affect the outcome of the analysis so
+	 * they can be left out, errors are always reported
+	 */
+	public void setWarningsReported(boolean warningsReported)
+	{
+		this.warningsReported = warningsReported;
+	}
+
+	/**
+	 * Stream errors and warnings are printed to, standard output by default
+	 */
+	public void setDiagnostics(PrintStream diagnostics)
+	{
+		this.diagnostics = diagnostics;
+	}
+
 	public boolean isSemanticallyCorrect()
 	{
 		return !errorDetected;
@@ -65,6 +158,28 @@ public class SemanticAnalyzer extends VisitorAdaptor
 	//////////// HELPER METHODS //////////
 	//////////////////////////////////////
 
+	private Symbol find(String name)
+	{
+		return scopes == null ? symbolTable.find(name) : scopes.find(name);
+	}
+
+	private Symbol findMember(Type type, String name)
+	{
+		return scopes == null ? type.getMembers().get(name) : scopes.findMember(type, name);
+	}
+
+	private void report(String message)
+	{
+		if (reports == null)
+		{
+			diagnostics.println(message);
+		}
+		else
+		{
+			reports.add(message);
+		}
+	}
+
 	private boolean isDeclaredInCurrentScope(String name)
 	{
 		return symbolTable.findInCurrentScope(name) != SymbolTable.NO_SYMBOL;
@@ -93,6 +208,10 @@ public class SemanticAnalyzer extends VisitorAdaptor
 		if ((source.getKind() == Type.CLASS || source.getKind() == Type.ABSTRACT_CLASS) &&
 			(destination.getKind() == Type.CLASS || destination.getKind() == Type.ABSTRACT_CLASS))
 		{
+			if (source.isSubtypeOf(destination)) return true;
+
+			// classes with equal members are equal types, which only
+			// comparing members of every ancestor can tell
 			while ((source = symbolTable.getExtendingType(source)) != SymbolTable.NO_TYPE)
 			{
 				if (source.assignableTo(destination)) return true;
@@ -116,15 +235,17 @@ public class SemanticAnalyzer extends VisitorAdaptor
 	public void reportError(int line, String message)
 	{
 		errorDetected = true;
-		System.out.println("Semantic error (line " + line + "): " + message);
+		report("Semantic error (line " + line + "): " + message);
 	}
 
 	private void checkKeywords(int line, String name)
 	{
+		if (!warningsReported) return;
+
 		if (name.equals("int") || name.equals("char") || name.equals("bool") || name.equals("null") ||
 			name.equals("eol") || name.equals("chr") || name.equals("ord") || name.equals("len"))
 		{
-			System.out.println("Semantic warning (line " + line + "): Redefinition of predefined word '" + name + "'");
+			report("Semantic warning (line " + line + "): Redefinition of predefined word '" + name + "'");
 		}
 	}
 
@@ -137,6 +258,10 @@ public class SemanticAnalyzer extends VisitorAdaptor
 	{
 		programName.symbol = symbolTable.insert(Symbol.PROGRAM, programName.getName(), SymbolTable.NO_TYPE);
 		symbolTable.openScope();
+
+		// chained right away so code of declarations can be
+		// generated before the whole program is analyzed
+		symbolTable.chainSymbols(programName.symbol);
 	}
 
 	@Override
@@ -158,7 +283,7 @@ public class SemanticAnalyzer extends VisitorAdaptor
 	@Override
 	public void visit(TypeName typeName)
 	{
-		Symbol typeSymbol = symbolTable.find(typeName.getName());
+		Symbol typeSymbol = find(typeName.getName());
 
 		if (typeSymbol == SymbolTable.NO_SYMBOL)
 		{
@@ -275,7 +400,7 @@ public class SemanticAnalyzer extends VisitorAdaptor
 		String baseClassName = withInheritance.getTypeName().getName();
 		Type baseClassType = withInheritance.getTypeName().type;
 
-		if (symbolTable.find(baseClassName) == SymbolTable.NO_SYMBOL)
+		if (find(baseClassName) == SymbolTable.NO_SYMBOL)
 		{
 			reportError(withInheritance.getLine(), "Base class '" + baseClassName + "' has not been defined!");
 		}
@@ -575,6 +700,11 @@ public class SemanticAnalyzer extends VisitorAdaptor
 	{
 		currentMethod.setParameter(parameterCount);
 		symbolTable.chainSymbols(currentMethod);
+
+		if (bodies != null)
+		{
+			bodies.put((MethodDecl) methodEntry.getParent(), new SemanticAnalyzer(this));
+		}
 	}
 
 	@Override
@@ -606,7 +736,7 @@ public class SemanticAnalyzer extends VisitorAdaptor
 	@Override
 	public void visit(DesignatorName designatorName)
 	{
-		Symbol designator = symbolTable.find(designatorName.getName());
+		Symbol designator = find(designatorName.getName());
 
 		if (designator == SymbolTable.NO_SYMBOL)
 		{
@@ -624,7 +754,7 @@ public class SemanticAnalyzer extends VisitorAdaptor
 		if (designator.getType().getKind() == Type.CLASS ||
 			designator.getType().getKind() == Type.ABSTRACT_CLASS)
 		{
-			Symbol member = designator.getType().getMembers().get(designatorChaining.getChainedName());
+			Symbol member = findMember(designator.getType(), designatorChaining.getChainedName());
 
 			if (member == null)
 			{
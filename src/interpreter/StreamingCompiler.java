@@ -0,0 +1,105 @@
+package interpreter;
+
+import interpreter.ast.*;
+import interpreter.parser.Parser;
+import interpreter.symbols.SymbolTable;
+import java_cup.runtime.Scanner;
+import java_cup.runtime.Symbol;
+import java_cup.runtime.lr_parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+
+/**
+ * Parses, analyzes and generates intermediate code in a single pass,
+ * syntax nodes are analyzed as soon as the parser reduces them and
+ * code of every method and class is generated as soon as its analysis
+ * is finished, after which its subtree is cut off from the syntax tree
+ *
+ * Parser reduces nodes in the same order a bottom up traversal of the
+ * finished tree visits them in, so both visitors see the same sequence
+ * they would in separate passes while the tree never holds more than
+ * declarations of the program and the method being parsed
+ */
+public class StreamingCompiler extends Parser
+{
+	private final SemanticAnalyzer analyzer;
+	private final IntermediateCodeGenerator generator;
+
+	/**
+	 * Analyzed nodes waiting for the unit they belong to to be finished
+	 */
+	private final List<SyntaxNode> pending = new ArrayList<>();
+
+	private boolean finished;
+
+	public StreamingCompiler(Scanner scanner, SymbolTable symbolTable)
+	{
+		super(scanner);
+
+		this.analyzer = new SemanticAnalyzer(symbolTable);
+		this.generator = new IntermediateCodeGenerator(symbolTable);
+	}
+
+	public SemanticAnalyzer getAnalyzer()
+	{
+		return analyzer;
+	}
+
+	public IntermediateCodeGenerator getGenerator()
+	{
+		return generator;
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public Symbol do_action(int action, lr_parser parser, Stack stack, int top) throws Exception
+	{
+		Symbol symbol = super.do_action(action, parser, stack, top);
+
+		// start symbol hands over the already reduced program
+		if (finished || !(symbol.value instanceof SyntaxNode)) return symbol;
+
+		// nodes built while recovering from an error are never analyzed,
+		// just like a tree with syntax errors is not analyzed at all
+		if (!isSyntacticallyCorrect()) return symbol;
+
+		SyntaxNode node = (SyntaxNode) symbol.value;
+		node.accept(analyzer);
+
+		finished = node instanceof Program;
+
+		// code generation stops at the first semantic error,
+		// analysis goes on to report all of them
+		if (!analyzer.isSemanticallyCorrect())
+		{
+			pending.clear();
+			return symbol;
+		}
+
+		pending.add(node);
+
+		if (isUnit(node))
+		{
+			for (SyntaxNode analyzed : pending) analyzed.accept(generator);
+			pending.clear();
+
+			if (!finished) symbol.value = null;
+		}
+
+		return symbol;
+	}
+
+	/**
+	 * Nodes code can be generated for once they are analyzed
+	 */
+	private static boolean isUnit(SyntaxNode node)
+	{
+		return node instanceof MethodDecl ||
+			   node instanceof ValidAbstractMethodDecl ||
+			   node instanceof ClassDecl ||
+			   node instanceof AbstractClassDecl ||
+			   node instanceof Program;
+	}
+}
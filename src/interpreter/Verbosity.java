@@ -0,0 +1,53 @@
+package interpreter;
+
+/**
+ * How much the compiler and the interpreter print besides diagnostics,
+ * every level prints everything the levels before it do
+ *
+ * Errors are always reported, regardless of the level
+ */
+public enum Verbosity
+{
+	/**
+	 * Errors and the output of the interpreted program only
+	 */
+	QUIET,
+
+	/**
+	 * Warnings, names of compilation phases and their outcome
+	 */
+	PHASES,
+
+	/**
+	 * Syntax tree and symbol table of the compiled program
+	 */
+	DUMPS,
+
+	/**
+	 * Every token read by the parser
+	 */
+	TOKENS;
+
+	/**
+	 * Level given by the -verbosity=level option, -quiet is a shorthand
+	 * for the lowest level, when neither is set everything is printed
+	 */
+	public static Verbosity of(Options options)
+	{
+		if (options.isSet("quiet")) return QUIET;
+
+		String level = options.getValue("verbosity", TOKENS.name());
+
+		for (Verbosity verbosity : values())
+		{
+			if (verbosity.name().equalsIgnoreCase(level)) return verbosity;
+		}
+
+		throw new IllegalArgumentException("Option '-verbosity' expects one of quiet, phases, dumps or tokens but was given '" + level + "'.");
+	}
+
+	public boolean prints(Verbosity level)
+	{
+		return compareTo(level) >= 0;
+	}
+}
@@ -0,0 +1,94 @@
+package interpreter.daemon;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * Secret a server shares with clients run by the same user, any local
+ * user can connect to a loopback port so the first line of a request
+ * has to be the token, which is kept in a file only its owner can read
+ */
+final class AccessToken
+{
+	private static final int BYTES = 32;
+
+	private AccessToken()
+	{
+	}
+
+	/**
+	 * File holding the token of the given server listening on the given port
+	 */
+	public static Path getFile(String server, int port)
+	{
+		return Paths.get(System.getProperty("user.home"), ".microjava", server + "-" + port + ".token");
+	}
+
+	/**
+	 * Creates a new token and writes it to the file, which is
+	 * deleted again once the virtual machine exits
+	 */
+	public static String create(Path file) throws IOException
+	{
+		byte[] bytes = new byte[BYTES];
+		new SecureRandom().nextBytes(bytes);
+
+		StringBuilder token = new StringBuilder();
+
+		for (byte value : bytes)
+		{
+			token.append(String.format("%02x", value));
+		}
+
+		if (!Files.isDirectory(file.getParent()))
+		{
+			Files.createDirectories(file.getParent(), ownerOnly("rwx------"));
+		}
+
+		Files.deleteIfExists(file);
+		Files.createFile(file, ownerOnly("rw-------"));
+		file.toFile().deleteOnExit();
+
+		Files.write(file, token.toString().getBytes(StandardCharsets.UTF_8));
+
+		return token.toString();
+	}
+
+	/**
+	 * Token of a running server, null if this user
+	 * started no server on the port of the file
+	 */
+	public static String read(Path file) throws IOException
+	{
+		if (!Files.exists(file)) return null;
+
+		return new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+	}
+
+	/**
+	 * Compares in constant time so the token can not be guessed
+	 * byte by byte from how long a refusal takes
+	 */
+	public static boolean matches(String token, String given)
+	{
+		return given != null && MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), given.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static FileAttribute<?>[] ownerOnly(String permissions)
+	{
+		if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix"))
+		{
+			return new FileAttribute<?>[0];
+		}
+
+		return new FileAttribute<?>[] { PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(permissions)) };
+	}
+}
@@ -0,0 +1,201 @@
+package interpreter.daemon;
+
+import interpreter.IntermediateCodeGenerator;
+import interpreter.Options;
+import interpreter.events.CompilePhaseEvent;
+import interpreter.optimizer.Optimizer;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Long lived compiler which keeps the last compilation of every source
+ * file it was asked to compile and recompiles only what changed, started
+ * without arguments it listens on a loopback port, started with a source
+ * file it asks a running daemon to compile that file
+ *
+ * Request is the access token of the daemon and the path of the source
+ * file on separate lines, response is whatever the compiler printed
+ * followed by a line starting with either OK or FAILED. Intermediate
+ * code is always written next to the source file
+ */
+public class CompileDaemon
+{
+	public static final int DEFAULT_PORT = 7070;
+
+	public static final String SUCCESS = "OK";
+	public static final String FAILURE = "FAILED";
+
+	private final boolean optimize;
+	private final boolean eliminateTailCalls;
+
+	/**
+	 * Compilers by canonical path of the source file they compile
+	 */
+	private final Map<String, IncrementalCompiler> compilers = new HashMap<>();
+
+	public CompileDaemon(boolean optimize, boolean eliminateTailCalls)
+	{
+		this.optimize = optimize;
+		this.eliminateTailCalls = eliminateTailCalls;
+	}
+
+	/**
+	 * Serves requests one at a time until the daemon is stopped
+	 */
+	public void serve(int port) throws IOException
+	{
+		try (ServerSocket server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress()))
+		{
+			String token = AccessToken.create(AccessToken.getFile("daemon", server.getLocalPort()));
+
+			System.out.println("Compile daemon listening on port " + server.getLocalPort() + ".");
+
+			while (true)
+			{
+				try (Socket socket = server.accept())
+				{
+					handle(socket, token);
+				}
+				catch (IOException exception)
+				{
+					System.err.println(exception.getMessage());
+				}
+			}
+		}
+	}
+
+	private void handle(Socket socket, String token) throws IOException
+	{
+		BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		PrintStream output = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8.name());
+
+		if (!AccessToken.matches(token, input.readLine()))
+		{
+			output.println(FAILURE + " access token does not match");
+			return;
+		}
+
+		String inputFileName = input.readLine();
+
+		if (inputFileName == null || !inputFileName.endsWith(".mj"))
+		{
+			output.println(FAILURE + " input file should have (.mj) extension");
+			return;
+		}
+
+		String outputFileName = inputFileName.substring(0, inputFileName.length() - ".mj".length()) + ".ir";
+
+		File sourceFile = new File(inputFileName);
+
+		if (!sourceFile.exists())
+		{
+			output.println(FAILURE + " input file could not be found");
+			return;
+		}
+
+		try
+		{
+			long start = System.nanoTime();
+
+			output.println(compile(sourceFile, outputFileName, output) + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+		}
+		catch (Exception exception)
+		{
+			output.println(FAILURE + " " + exception);
+		}
+	}
+
+	/**
+	 * Compiles the file and writes its code, returns the status line
+	 */
+	private String compile(File sourceFile, String outputFileName, PrintStream diagnostics) throws Exception
+	{
+		String source = new String(Files.readAllBytes(sourceFile.toPath()), StandardCharsets.UTF_8);
+
+		IncrementalCompiler compiler = compilers.computeIfAbsent(sourceFile.getCanonicalPath(), path -> new IncrementalCompiler());
+
+		CompilePhaseEvent compilation = CompilePhaseEvent.start(CompilePhaseEvent.INCREMENTAL, sourceFile.getPath());
+		IntermediateCodeGenerator generator = compiler.compile(source, diagnostics);
+		compilation.commit();
+
+		if (generator == null) return FAILURE;
+
+		generator.optimize(Optimizer.of(optimize, eliminateTailCalls));
+		generator.writeIRFile(outputFileName);
+
+		int total = compiler.getAnalyzedBodies() + compiler.getReusedBodies();
+
+		return SUCCESS + " " + compiler.getAnalyzedBodies() + " of " + total + " method bodies compiled";
+	}
+
+	/**
+	 * Sends a request to a running daemon and prints its response,
+	 * returns whether the file was compiled
+	 */
+	public static boolean request(int port, String inputFileName) throws IOException
+	{
+		String token = AccessToken.read(AccessToken.getFile("daemon", port));
+
+		if (token == null)
+		{
+			System.out.println(FAILURE + " no compile daemon of this user listens on port " + port);
+			return false;
+		}
+
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port))
+		{
+			PrintStream output = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8.name());
+
+			output.println(token);
+			output.println(Paths.get(inputFileName).toAbsolutePath());
+
+			BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			String line;
+			boolean compiled = false;
+
+			while ((line = input.readLine()) != null)
+			{
+				System.out.println(line);
+				compiled = line.startsWith(SUCCESS);
+			}
+
+			return compiled;
+		}
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		Options options = new Options(args);
+		args = options.getArguments().toArray(new String[0]);
+
+		int port = (int) options.getLong("port", DEFAULT_PORT);
+
+		if (args.length > 1)
+		{
+			System.err.println("Wrong number of arguments!");
+			System.err.println("Daemon is started without arguments, files are compiled by calling it with input_file(.mj).");
+			System.err.println("Available options:");
+			System.err.println("\t-port=number\t\tloopback port the daemon listens on, " + DEFAULT_PORT + " by default");
+			System.err.println("\t-optimize\t\tinline small methods before writing intermediate code");
+			System.err.println("\t-tco\t\t\teliminate self tail calls, implied by -optimize");
+			return;
+		}
+
+		if (args.length == 0)
+		{
+			new CompileDaemon(options.isSet("optimize"), options.isSet("tco")).serve(port);
+		}
+		else if (!request(port, args[0]))
+		{
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,454 @@
+package interpreter.daemon;
+
+import interpreter.IntermediateCodeGenerator;
+import interpreter.Interpreter;
+import interpreter.Options;
+import interpreter.SemanticAnalyzer;
+import interpreter.ast.Program;
+import interpreter.events.CompilePhaseEvent;
+import interpreter.lexer.Yylex;
+import interpreter.optimizer.Optimizer;
+import interpreter.parser.Parser;
+import interpreter.runtime.InterpretingException;
+import interpreter.symbols.SymbolTable;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Long lived compiler and interpreter of batches of source files, started
+ * without source files it listens on a loopback port, started with source
+ * files or directories holding them it asks a running server to compile
+ * and run them
+ *
+ * Files of a batch are compiled and run on a pool, each with its own symbol
+ * table, analyzer, generator and interpreter, while parser and lexer tables
+ * and the interpreter stay loaded and compiled between batches. Intermediate
+ * code of every file is written next to it, input of 'program.mj' is read
+ * from 'program.in' next to it, if there is no such file the program gets
+ * no input
+ *
+ * Request is the access token of the server followed by the path of every
+ * source file on a line of its own and an empty line, response is what the
+ * compiler printed and what the program printed for each file followed by
+ * its status and timings, in the order the files were given, and a last
+ * line starting with either OK or FAILED
+ */
+public class CompileServer
+{
+	public static final int DEFAULT_PORT = 7071;
+
+	public static final String SUCCESS = "OK";
+	public static final String FAILURE = "FAILED";
+
+	private final boolean optimize;
+	private final boolean eliminateTailCalls;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Runtime options every program is interpreted with
+	 */
+	private final Options options;
+
+	/**
+	 * Outcome of compiling and running a single file of a batch
+	 */
+	private static final class Job
+	{
+		public final String inputFileName;
+
+		/**
+		 * Diagnostics and output of the program end up
+		 * in the same buffer in the order they were printed
+		 */
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		public final PrintStream diagnostics = new PrintStream(buffer, true);
+		public final PrintStream output = new PrintStream(buffer, true);
+
+		private final StringBuilder timings = new StringBuilder();
+		private long phaseStart;
+
+		public boolean succeeded;
+		public long time;
+
+		public Job(String inputFileName)
+		{
+			this.inputFileName = inputFileName;
+		}
+
+		public void startPhase()
+		{
+			phaseStart = System.nanoTime();
+		}
+
+		public void endPhase(String phase)
+		{
+			timings.append(timings.length() == 0 ? "" : ", ").append(phase).append(' ')
+				   .append((System.nanoTime() - phaseStart) / 1000000);
+		}
+
+		public String getReport()
+		{
+			String printed = buffer.toString();
+
+			if (!printed.isEmpty() && !printed.endsWith("\n"))
+			{
+				printed += System.lineSeparator();
+			}
+
+			return printed + (succeeded ? SUCCESS : FAILURE) + " " + inputFileName + " in " + time / 1000000 + " ms" +
+				   (timings.length() == 0 ? "" : " (" + timings + ")");
+		}
+	}
+
+	public CompileServer(boolean optimize, boolean eliminateTailCalls, Options options, ForkJoinPool pool)
+	{
+		this.optimize = optimize;
+		this.eliminateTailCalls = eliminateTailCalls;
+		this.options = options;
+		this.pool = pool;
+	}
+
+	/**
+	 * Serves batches one at a time until the server is stopped
+	 */
+	public void serve(int port) throws IOException
+	{
+		try (ServerSocket server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress()))
+		{
+			String token = AccessToken.create(AccessToken.getFile("server", server.getLocalPort()));
+
+			System.out.println("Compile server listening on port " + server.getLocalPort() + " with " + pool.getParallelism() + " threads.");
+
+			while (true)
+			{
+				try (Socket socket = server.accept())
+				{
+					handle(socket, token);
+				}
+				catch (IOException exception)
+				{
+					System.err.println(exception.getMessage());
+				}
+			}
+		}
+	}
+
+	private void handle(Socket socket, String token) throws IOException
+	{
+		BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		PrintStream output = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8.name());
+
+		if (!AccessToken.matches(token, input.readLine()))
+		{
+			output.println(FAILURE + " access token does not match");
+			return;
+		}
+
+		List<String> inputFileNames = new ArrayList<>();
+		String line;
+
+		while ((line = input.readLine()) != null && !line.isEmpty())
+		{
+			inputFileNames.add(line);
+		}
+
+		long start = System.nanoTime();
+
+		List<ForkJoinTask<Job>> tasks = new ArrayList<>(inputFileNames.size());
+
+		for (String inputFileName : inputFileNames)
+		{
+			tasks.add(pool.submit(() -> process(inputFileName)));
+		}
+
+		int succeeded = 0;
+
+		for (ForkJoinTask<Job> task : tasks)
+		{
+			Job job = task.join();
+
+			output.println(job.getReport());
+
+			if (job.succeeded) succeeded++;
+		}
+
+		output.println((succeeded == tasks.size() ? SUCCESS : FAILURE) + " " + succeeded + " of " + tasks.size() +
+					   " files compiled and run in " + (System.nanoTime() - start) / 1000000 + " ms");
+	}
+
+	/**
+	 * Compiles the file, writes its code and runs it, whatever goes
+	 * wrong is reported in the job instead of being thrown
+	 */
+	private Job process(String inputFileName)
+	{
+		Job job = new Job(inputFileName);
+		long start = System.nanoTime();
+
+		try
+		{
+			IntermediateCodeGenerator generator = compile(job);
+
+			job.succeeded = generator != null && run(job, generator);
+		}
+		catch (Exception exception)
+		{
+			job.diagnostics.println(exception);
+		}
+
+		job.time = System.nanoTime() - start;
+
+		return job;
+	}
+
+	/**
+	 * Compiles the file and writes its code, returns generator
+	 * holding the code or null if the file has errors
+	 */
+	private IntermediateCodeGenerator compile(Job job) throws Exception
+	{
+		String inputFileName = job.inputFileName;
+
+		if (!inputFileName.endsWith(".mj"))
+		{
+			job.diagnostics.println("Input file should have (.mj) extension.");
+			return null;
+		}
+
+		File sourceFile = new File(inputFileName);
+
+		if (!sourceFile.exists())
+		{
+			job.diagnostics.println("Input file could not be found.");
+			return null;
+		}
+
+		SymbolTable symbolTable = new SymbolTable();
+		Program program;
+
+		try (Reader reader = new BufferedReader(new FileReader(sourceFile)))
+		{
+			Yylex lexer = new Yylex(reader, symbolTable.getNames());
+			lexer.setDiagnostics(job.diagnostics);
+
+			Parser parser = new Parser(lexer);
+			parser.setTokenEcho(false);
+			parser.setDiagnostics(job.diagnostics);
+
+			job.startPhase();
+			CompilePhaseEvent parsing = CompilePhaseEvent.start(CompilePhaseEvent.PARSE, inputFileName);
+			Object root = parser.parse().value;
+			parsing.commit();
+			job.endPhase("parse");
+
+			if (!(root instanceof Program) || !parser.isSyntacticallyCorrect())
+			{
+				job.diagnostics.println("Syntax error! Compilation cannot continue!");
+				return null;
+			}
+
+			program = (Program) root;
+		}
+
+		SemanticAnalyzer analyzer = new SemanticAnalyzer(symbolTable);
+		analyzer.setDiagnostics(job.diagnostics);
+
+		job.startPhase();
+		CompilePhaseEvent analysis = CompilePhaseEvent.start(CompilePhaseEvent.SEMANTIC_ANALYSIS, inputFileName);
+		analyzer.analyze(program);
+		analysis.commit();
+		job.endPhase("analysis");
+
+		if (!analyzer.isSemanticallyCorrect())
+		{
+			job.diagnostics.println("Semantic error! Compilation cannot continue!");
+			return null;
+		}
+
+		IntermediateCodeGenerator generator = new IntermediateCodeGenerator(symbolTable);
+
+		job.startPhase();
+		CompilePhaseEvent generation = CompilePhaseEvent.start(CompilePhaseEvent.CODE_GENERATION, inputFileName);
+		generator.generate(program);
+		generation.commit();
+
+		CompilePhaseEvent optimization = CompilePhaseEvent.start(CompilePhaseEvent.OPTIMIZATION, inputFileName);
+		generator.optimize(Optimizer.of(optimize, eliminateTailCalls));
+		optimization.commit();
+		job.endPhase("generation");
+
+		String outputFileName = inputFileName.substring(0, inputFileName.length() - ".mj".length()) + ".ir";
+
+		job.startPhase();
+		CompilePhaseEvent writing = CompilePhaseEvent.start(CompilePhaseEvent.CODE_WRITE, outputFileName);
+		generator.writeIRFile(outputFileName);
+		writing.commit();
+		job.endPhase("write");
+
+		return generator;
+	}
+
+	/**
+	 * Interprets the code with streams of the job,
+	 * returns whether the program finished
+	 */
+	private boolean run(Job job, IntermediateCodeGenerator generator) throws IOException
+	{
+		String inputFileName = job.inputFileName;
+		File programInputFile = new File(inputFileName.substring(0, inputFileName.length() - ".mj".length()) + ".in");
+
+		Interpreter interpreter = new Interpreter();
+		interpreter.configure(options);
+		interpreter.setOutput(job.output);
+		interpreter.setReports(job.diagnostics);
+
+		try (InputStream programInput = programInputFile.exists() ? new FileInputStream(programInputFile) : new ByteArrayInputStream(new byte[0]))
+		{
+			interpreter.setInput(programInput);
+
+			job.startPhase();
+
+			try
+			{
+				interpreter.interpret(generator.getIntermediateCode());
+			}
+			catch (InterpretingException exception)
+			{
+				job.output.println();
+				job.diagnostics.println(exception.getMessage());
+				job.diagnostics.println("Interpretation aborted with an error!");
+				return false;
+			}
+			finally
+			{
+				job.endPhase("run");
+			}
+		}
+
+		interpreter.printMemoizationStatistics();
+
+		return true;
+	}
+
+	/**
+	 * Sends a batch to a running server and prints its response,
+	 * returns whether every file of the batch was compiled and run
+	 */
+	public static boolean request(int port, List<String> inputFileNames) throws IOException
+	{
+		String token = AccessToken.read(AccessToken.getFile("server", port));
+
+		if (token == null)
+		{
+			System.out.println(FAILURE + " no compile server of this user listens on port " + port);
+			return false;
+		}
+
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port))
+		{
+			PrintStream output = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8.name());
+
+			output.println(token);
+
+			for (String inputFileName : inputFileNames)
+			{
+				output.println(Paths.get(inputFileName).toAbsolutePath());
+			}
+
+			output.println();
+
+			BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			String line;
+			boolean compiled = false;
+
+			while ((line = input.readLine()) != null)
+			{
+				System.out.println(line);
+				compiled = line.startsWith(SUCCESS);
+			}
+
+			return compiled;
+		}
+	}
+
+	/**
+	 * Source files among the given files and directories,
+	 * directories contribute every source file directly in them
+	 */
+	private static List<String> getSourceFiles(String[] names)
+	{
+		List<String> result = new ArrayList<>();
+
+		for (String name : names)
+		{
+			File file = new File(name);
+			File[] sources = file.isDirectory() ? file.listFiles((directory, child) -> child.endsWith(".mj")) : null;
+
+			if (sources == null)
+			{
+				result.add(name);
+				continue;
+			}
+
+			Arrays.sort(sources);
+
+			for (File source : sources)
+			{
+				result.add(source.getPath());
+			}
+		}
+
+		return result;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		Options options = new Options(args);
+		args = options.getArguments().toArray(new String[0]);
+
+		int port = (int) options.getLong("port", DEFAULT_PORT);
+
+		if (options.isSet("help"))
+		{
+			System.err.println("Server is started without arguments, batches are compiled and run by calling it with input_file(.mj) or directory arguments.");
+			System.err.println("Available options:");
+			System.err.println("\t-port=number\t\tloopback port the server listens on, " + DEFAULT_PORT + " by default");
+			System.err.println("\t-threads=count\t\tnumber of files compiled at once, number of processors by default");
+			System.err.println("\t-optimize\t\tinline small methods before writing intermediate code");
+			System.err.println("\t-tco\t\t\teliminate self tail calls, implied by -optimize");
+			System.err.println("\t-memoize[=limit]\tcache results of pure methods with integer parameters");
+			System.err.println("\t-steps=count\t\tabort a program after count loop iterations and method calls");
+			System.err.println("\t-timeout=milliseconds\tabort a program after running for the given time");
+			System.err.println("\t-heap=bytes\t\tabort a program after allocating more than the given bytes");
+			return;
+		}
+
+		if (args.length == 0)
+		{
+			ForkJoinPool pool = new ForkJoinPool((int) options.getLong("threads", Runtime.getRuntime().availableProcessors()));
+
+			try
+			{
+				new CompileServer(options.isSet("optimize"), options.isSet("tco"), options, pool).serve(port);
+			}
+			finally
+			{
+				pool.shutdown();
+			}
+		}
+		else if (!request(port, getSourceFiles(args)))
+		{
+			System.exit(1);
+		}
+	}
+}
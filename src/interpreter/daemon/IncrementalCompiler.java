@@ -0,0 +1,356 @@
+package interpreter.daemon;
+
+import interpreter.IntermediateCodeGenerator;
+import interpreter.SemanticAnalyzer;
+import interpreter.ast.*;
+import interpreter.ir.Statement;
+import interpreter.lexer.Yylex;
+import interpreter.parser.Parser;
+import interpreter.symbols.Symbol;
+import interpreter.symbols.SymbolTable;
+import interpreter.symbols.Type;
+
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.*;
+
+/**
+ * Compiles successive versions of a single source file, keeping code of
+ * method bodies from the last successful compilation and analyzing and
+ * generating again only bodies which changed or which refer to a name
+ * whose declaration changed
+ *
+ * Every version is parsed and its declarations are analyzed as a whole,
+ * those are cheap next to bodies, which are detached from the tree the
+ * same way the parallel compiler does it. Body counts as unchanged when
+ * the source lines it spans and the line it starts at are the same, line
+ * numbers are part of the generated code
+ *
+ * Types in descriptions of declarations come with their ancestors, so
+ * a class which now extends another changes every declaration of that
+ * class or of its subclasses and with them bodies which only reach the
+ * class through the type of a variable
+ */
+public class IncrementalCompiler
+{
+	/**
+	 * Code of a method body together with what it was generated from
+	 */
+	private static final class CompiledBody
+	{
+		public final String source;
+		public final int line;
+		public final LinkedList<Statement> code;
+
+		private Set<String> names;
+
+		public CompiledBody(String source, int line, LinkedList<Statement> code)
+		{
+			this.source = source;
+			this.line = line;
+			this.code = code;
+		}
+
+		/**
+		 * Every identifier in the source of the body, which is a superset
+		 * of names the body refers to, keywords and all
+		 */
+		public Set<String> getNames()
+		{
+			if (names == null)
+			{
+				names = new HashSet<>();
+
+				for (int i = 0; i < source.length(); i++)
+				{
+					if (!Character.isLetter(source.charAt(i))) continue;
+
+					int start = i;
+
+					while (i < source.length() && (Character.isLetterOrDigit(source.charAt(i)) || source.charAt(i) == '_')) i++;
+
+					names.add(source.substring(start, i));
+				}
+			}
+
+			return names;
+		}
+	}
+
+	/**
+	 * Bodies of the last successful compilation by qualified method name
+	 */
+	private Map<String, CompiledBody> bodies = new HashMap<>();
+
+	/**
+	 * Descriptions of every declaration of the last successful
+	 * compilation a body could refer to, grouped by name
+	 */
+	private Map<String, Set<String>> declarations = new HashMap<>();
+
+	private int analyzedBodies;
+	private int reusedBodies;
+
+	/**
+	 * Compiles the given version of the source, returns generator holding
+	 * its code or null if it has errors, which are printed to diagnostics
+	 */
+	public IntermediateCodeGenerator compile(String source, PrintStream diagnostics) throws Exception
+	{
+		analyzedBodies = 0;
+		reusedBodies = 0;
+
+		SymbolTable symbolTable = new SymbolTable();
+
+		Yylex lexer = new Yylex(new StringReader(source), symbolTable.getNames());
+		lexer.setDiagnostics(diagnostics);
+
+		Parser parser = new Parser(lexer);
+		parser.setTokenEcho(false);
+		parser.setDiagnostics(diagnostics);
+
+		Object root = parser.parse().value;
+
+		if (!(root instanceof Program) || !parser.isSyntacticallyCorrect())
+		{
+			diagnostics.println("Syntax error! Compilation cannot continue!");
+			return null;
+		}
+
+		Program program = (Program) root;
+
+		List<MethodDecl> methods = new ArrayList<>();
+		List<String> names = new ArrayList<>();
+
+		// methods are named after their classes, classes come
+		// before global methods and do not nest
+		program.traverseBottomUp(new VisitorAdaptor()
+		{
+			private String owner;
+
+			@Override
+			public void visit(ClassName className)
+			{
+				owner = className.getName() + ".";
+			}
+
+			@Override
+			public void visit(AbstractClassName abstractClassName)
+			{
+				owner = abstractClassName.getName() + ".";
+			}
+
+			@Override
+			public void visit(ClassDecl classDecl)
+			{
+				owner = null;
+			}
+
+			@Override
+			public void visit(AbstractClassDecl abstractClassDecl)
+			{
+				owner = null;
+			}
+
+			@Override
+			public void visit(MethodDecl methodDecl)
+			{
+				methods.add(methodDecl);
+				names.add(owner == null ? methodDecl.getMethodName().getName() : owner + methodDecl.getMethodName().getName());
+			}
+		});
+
+		List<StatementList> detached = new ArrayList<>(methods.size());
+
+		for (MethodDecl method : methods)
+		{
+			detached.add(method.getStatementList());
+			method.setStatementList(null);
+		}
+
+		try
+		{
+			SemanticAnalyzer analyzer = new SemanticAnalyzer(symbolTable);
+			analyzer.setDiagnostics(diagnostics);
+
+			Map<MethodDecl, SemanticAnalyzer> analyzers = analyzer.analyzeDeclarations(program);
+
+			Map<String, Set<String>> currentDeclarations = describeDeclarations(symbolTable, program);
+			Set<String> changedNames = getChangedNames(declarations, currentDeclarations);
+
+			String[] lines = source.split("\r?\n", -1);
+
+			Map<MethodDecl, LinkedList<Statement>> code = new IdentityHashMap<>();
+			Map<String, CompiledBody> currentBodies = new HashMap<>();
+
+			for (int i = 0; i < methods.size(); i++)
+			{
+				MethodDecl method = methods.get(i);
+
+				int line = method.getLine();
+				int lastLine = i + 1 < methods.size() ? Math.max(line, methods.get(i + 1).getLine()) : lines.length;
+
+				String name = names.get(i);
+				String body = String.join("\n", Arrays.asList(lines).subList(line - 1, Math.min(lastLine, lines.length)));
+
+				CompiledBody compiled = bodies.get(name);
+
+				if (compiled != null && compiled.line == line && compiled.source.equals(body) &&
+					Collections.disjoint(compiled.getNames(), changedNames))
+				{
+					reusedBodies++;
+				}
+				else
+				{
+					analyzedBodies++;
+
+					SemanticAnalyzer bodyAnalyzer = analyzers.get(method);
+					bodyAnalyzer.analyzeBody(detached.get(i));
+					analyzer.merge(bodyAnalyzer);
+
+					LinkedList<Statement> statements = null;
+
+					if (bodyAnalyzer.isSemanticallyCorrect())
+					{
+						statements = new IntermediateCodeGenerator(symbolTable).generate(detached.get(i));
+					}
+
+					compiled = new CompiledBody(body, line, statements);
+				}
+
+				code.put(method, compiled.code);
+				currentBodies.put(name, compiled);
+			}
+
+			if (!analyzer.isSemanticallyCorrect())
+			{
+				diagnostics.println("Semantic error! Compilation cannot continue!");
+				return null;
+			}
+
+			IntermediateCodeGenerator generator = new IntermediateCodeGenerator(symbolTable);
+			generator.generate(program, code);
+
+			bodies = currentBodies;
+			declarations = currentDeclarations;
+
+			return generator;
+		}
+		finally
+		{
+			for (int i = 0; i < methods.size(); i++)
+			{
+				methods.get(i).setStatementList(detached.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Number of bodies the last compilation analyzed and generated
+	 */
+	public int getAnalyzedBodies()
+	{
+		return analyzedBodies;
+	}
+
+	/**
+	 * Number of bodies the last compilation took from the previous one
+	 */
+	public int getReusedBodies()
+	{
+		return reusedBodies;
+	}
+
+	//////////////////////////////////////
+	//////////// HELPER METHODS //////////
+	//////////////////////////////////////
+
+	/**
+	 * Describes declarations of the program and members of its classes,
+	 * parameters of methods are part of their description while other
+	 * locals are not, bodies of other methods can not see them
+	 */
+	private static Map<String, Set<String>> describeDeclarations(SymbolTable symbolTable, Program program)
+	{
+		Map<String, Set<String>> result = new HashMap<>();
+
+		for (Symbol symbol : program.getProgramName().symbol.getLocals().values())
+		{
+			result.computeIfAbsent(symbol.getName(), name -> new HashSet<>()).add(describe(symbolTable, symbol));
+
+			Type type = symbol.getType();
+
+			if (symbol.getKind() == Symbol.TYPE && type.getMembers() != null)
+			{
+				for (Symbol member : type.getMembersCollection())
+				{
+					result.computeIfAbsent(member.getName(), name -> new HashSet<>())
+						  .add(symbol.getName() + "." + describe(symbolTable, member));
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private static String describe(SymbolTable symbolTable, Symbol symbol)
+	{
+		StringBuilder builder = new StringBuilder();
+
+		builder.append(symbol.getKind()).append(' ')
+			   .append(symbol.getName()).append(' ')
+			   .append(describe(symbolTable, symbol.getType())).append(' ')
+			   .append(symbol.getValue()).append(' ')
+			   .append(symbol.getParameter());
+
+		if (symbol.getKind() == Symbol.METHOD)
+		{
+			int parameters = symbol.getParameter() < 0 ? -symbol.getParameter() - 1 : symbol.getParameter();
+
+			for (int i = 1; i <= parameters; i++)
+			{
+				builder.append(", ").append(describe(symbolTable, symbolTable.getFormalParameter(symbol, i).getType()));
+			}
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Name of the type followed by names of all of its ancestors,
+	 * of its elements' ancestors for arrays
+	 */
+	private static String describe(SymbolTable symbolTable, Type type)
+	{
+		StringBuilder builder = new StringBuilder(symbolTable.getTypeName(type));
+
+		while (type.getKind() == Type.ARRAY)
+		{
+			type = type.getParentType();
+		}
+
+		for (Type ancestor = symbolTable.getExtendingType(type); ancestor != SymbolTable.NO_TYPE; ancestor = symbolTable.getExtendingType(ancestor))
+		{
+			builder.append(" extends ").append(symbolTable.getTypeName(ancestor));
+		}
+
+		return builder.toString();
+	}
+
+	private static Set<String> getChangedNames(Map<String, Set<String>> previous, Map<String, Set<String>> current)
+	{
+		Set<String> result = new HashSet<>();
+
+		for (Map.Entry<String, Set<String>> entry : current.entrySet())
+		{
+			if (!entry.getValue().equals(previous.get(entry.getKey()))) result.add(entry.getKey());
+		}
+
+		for (String name : previous.keySet())
+		{
+			if (!current.containsKey(name)) result.add(name);
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,21 @@
+package interpreter.events;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event spanning reading of an intermediate code file
+ */
+@Name("interpreter.CodeLoad")
+@Label("Intermediate Code Load")
+@Category({"MicroJava", "Interpreter"})
+@Description("Reading of intermediate code from a file before interpretation")
+@StackTrace(false)
+public class CodeLoadEvent extends Event
+{
+	@Label("Intermediate Code File")
+	public String file;
+
+	@Label("Size")
+	@DataAmount
+	public long size;
+}
@@ -0,0 +1,44 @@
+package interpreter.events;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event spanning one phase of compiling a MicroJava source file
+ */
+@Name("interpreter.CompilePhase")
+@Label("Compile Phase")
+@Category({"MicroJava", "Compiler"})
+@Description("Phase of compiling a MicroJava source file into intermediate code")
+@StackTrace(false)
+public class CompilePhaseEvent extends Event
+{
+	public static final String PARSE = "parse";
+	public static final String SEMANTIC_ANALYSIS = "semantic analysis";
+	public static final String CODE_GENERATION = "intermediate code generation";
+	public static final String OPTIMIZATION = "optimization";
+	public static final String CODE_WRITE = "intermediate code write";
+	public static final String SINGLE_PASS = "single pass compilation";
+	public static final String PARALLEL = "parallel analysis and code generation";
+	public static final String INCREMENTAL = "incremental compilation";
+
+	@Label("Phase")
+	public String phase;
+
+	@Label("File")
+	public String file;
+
+	/**
+	 * Event of the given phase which has already begun, it
+	 * is recorded once committed at the end of the phase
+	 */
+	public static CompilePhaseEvent start(String phase, String file)
+	{
+		CompilePhaseEvent event = new CompilePhaseEvent();
+
+		event.phase = phase;
+		event.file = file;
+		event.begin();
+
+		return event;
+	}
+}
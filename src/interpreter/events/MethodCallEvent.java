@@ -0,0 +1,27 @@
+package interpreter.events;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event spanning a call of a MicroJava method, it is
+ * disabled unless turned on in recording settings, for example with
+ * -XX:StartFlightRecording:+interpreter.MethodCall#enabled=true
+ *
+ * Only calls which last longer than the threshold are recorded,
+ * it can be changed the same way through the threshold setting
+ */
+@Name("interpreter.MethodCall")
+@Label("Method Call")
+@Category({"MicroJava", "Interpreter"})
+@Description("Call of a MicroJava method which took longer than the threshold")
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+public class MethodCallEvent extends Event
+{
+	@Label("Method")
+	public String method;
+
+	@Label("Line")
+	public int line;
+}
@@ -37,6 +37,9 @@ public abstract class Expression implements Serializable
 			MULTIPLICATION,
 			DIVISION,
 			MODULUS,
+			SHIFT_LEFT,
+			SHIFT_RIGHT,
+			BITWISE_AND,
 			EQUAL,
 			NOT_EQUAL,
 			GREATER,
@@ -23,6 +23,7 @@ public abstract class Statement implements Serializable
 		R visit(Program statement);
 		R visit(Read statement);
 		R visit(Return statement);
+		R visit(TailCall statement);
 	}
 
 	public int line;
@@ -359,4 +360,21 @@ public abstract class Statement implements Serializable
 			return visitor.visit(this);
 		}
 	}
+
+	public static final class TailCall extends Statement
+	{
+		public final List<Expression> arguments;
+
+		public TailCall(int line, List<Expression> arguments)
+		{
+			super(line);
+			this.arguments = arguments;
+		}
+
+		@Override
+		public <R> R accept(Visitor<R> visitor)
+		{
+			return visitor.visit(this);
+		}
+	}
 }
@@ -0,0 +1,366 @@
+package interpreter.metrics;
+
+import interpreter.ir.Statement;
+import interpreter.runtime.MethodNames;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts what interpreters sharing the registry do, every counter is
+ * striped so interpreters running on different threads do not contend
+ * over a single memory location
+ */
+public class MetricsRegistry
+{
+	private static final String PREFIX = "microjava_";
+
+	private static final double NANOSECONDS_PER_SECOND = 1e9;
+
+	/**
+	 * Upper bounds of run time buckets in seconds, last bucket is unbounded
+	 */
+	private static final double[] RUN_TIME_BOUNDS = { 0.001, 0.01, 0.1, 1, 10, 100 };
+
+	private final LongAdder statements = new LongAdder();
+	private final LongAdder expressions = new LongAdder();
+	private final LongAdder environments = new LongAdder();
+
+	/**
+	 * Calls by qualified method name, names are all the registry
+	 * keeps of a program so it can outlive any number of them
+	 */
+	private final ConcurrentMap<String, LongAdder> calls = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, LongAdder> allocations = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, LongAdder> allocatedBytes = new ConcurrentHashMap<>();
+
+	private final LongAccumulator maximalCallDepth = new LongAccumulator(Math::max, 0);
+
+	private final LongAdder runs = new LongAdder();
+	private final LongAdder runTime = new LongAdder();
+	private final LongAccumulator maximalRunTime = new LongAccumulator(Math::max, 0);
+
+	private final LongAdder[] runTimeBuckets = new LongAdder[RUN_TIME_BOUNDS.length + 1];
+
+	public MetricsRegistry()
+	{
+		for (int i = 0; i < runTimeBuckets.length; i++) runTimeBuckets[i] = new LongAdder();
+	}
+
+	/**
+	 * Call counters of every method of the program about to run, named
+	 * after their classes, the map is for the run and should be dropped
+	 * with it
+	 */
+	public Map<Statement.Method, LongAdder> start(Statement.Program program)
+	{
+		Map<Statement.Method, LongAdder> counters = new IdentityHashMap<>();
+
+		for (Map.Entry<Statement.Method, String> entry : MethodNames.of(program).entrySet())
+		{
+			counters.put(entry.getKey(), calls.computeIfAbsent(entry.getValue(), key -> new LongAdder()));
+		}
+
+		return counters;
+	}
+
+	//////////////////////////////////////
+	//////////// INSTRUMENTATION /////////
+	//////////////////////////////////////
+
+	public void recordStatement()
+	{
+		statements.increment();
+	}
+
+	public void recordExpression()
+	{
+		expressions.increment();
+	}
+
+	public void recordEnvironment()
+	{
+		environments.increment();
+	}
+
+	/**
+	 * Counter is the one start gave for the called method
+	 */
+	public void recordCall(LongAdder counter, int depth)
+	{
+		counter.increment();
+		maximalCallDepth.accumulate(depth);
+	}
+
+	/**
+	 * Bytes are an estimated size of the allocated runtime object
+	 */
+	public void recordAllocation(String type, long bytes)
+	{
+		allocations.computeIfAbsent(type, key -> new LongAdder()).increment();
+		allocatedBytes.computeIfAbsent(type, key -> new LongAdder()).add(bytes);
+	}
+
+	public void recordRun(long nanoseconds)
+	{
+		runs.increment();
+		runTime.add(nanoseconds);
+		maximalRunTime.accumulate(nanoseconds);
+
+		int bucket = 0;
+
+		while (bucket < RUN_TIME_BOUNDS.length && toSeconds(nanoseconds) > RUN_TIME_BOUNDS[bucket]) bucket++;
+
+		runTimeBuckets[bucket].increment();
+	}
+
+	//////////////////////////////////////
+	/////////////// VALUES ///////////////
+	//////////////////////////////////////
+
+	public long getStatements()
+	{
+		return statements.sum();
+	}
+
+	public long getExpressions()
+	{
+		return expressions.sum();
+	}
+
+	public long getEnvironments()
+	{
+		return environments.sum();
+	}
+
+	public long getMaximalCallDepth()
+	{
+		return maximalCallDepth.get();
+	}
+
+	public long getRuns()
+	{
+		return runs.sum();
+	}
+
+	/**
+	 * Calls per method name, methods of different programs
+	 * with the same name are summed up
+	 */
+	public Map<String, Long> getCalls()
+	{
+		return sum(calls);
+	}
+
+	/**
+	 * Runs which took at most the given number of seconds, by upper
+	 * bound of each bucket in the order of the bounds, '+Inf' last
+	 */
+	public Map<String, Long> getRunTimeHistogram()
+	{
+		Map<String, Long> result = new LinkedHashMap<>();
+		long runs = 0;
+
+		for (int i = 0; i < runTimeBuckets.length; i++)
+		{
+			runs += runTimeBuckets[i].sum();
+			result.put(i < RUN_TIME_BOUNDS.length ? String.valueOf(RUN_TIME_BOUNDS[i]) : "+Inf", runs);
+		}
+
+		return result;
+	}
+
+	public Map<String, Long> getAllocations()
+	{
+		return sum(allocations);
+	}
+
+	public Map<String, Long> getAllocatedBytes()
+	{
+		return sum(allocatedBytes);
+	}
+
+	private static Map<String, Long> sum(Map<String, LongAdder> counters)
+	{
+		Map<String, Long> result = new TreeMap<>();
+
+		for (Map.Entry<String, LongAdder> entry : counters.entrySet())
+		{
+			result.put(entry.getKey(), entry.getValue().sum());
+		}
+
+		return result;
+	}
+
+	private static double toSeconds(long nanoseconds)
+	{
+		return nanoseconds / NANOSECONDS_PER_SECOND;
+	}
+
+	//////////////////////////////////////
+	/////////////// EXPORT ///////////////
+	//////////////////////////////////////
+
+	/**
+	 * Writes metrics in the Prometheus text exposition format
+	 */
+	public void writePrometheus(Writer output) throws IOException
+	{
+		PrintWriter writer = new PrintWriter(output);
+
+		writeMetric(writer, "statements_total", "counter", "Statements executed.", statements.sum());
+		writeMetric(writer, "expressions_total", "counter", "Expressions evaluated.", expressions.sum());
+		writeMetric(writer, "environments_total", "counter", "Environments created for method activations.", environments.sum());
+		writeMetric(writer, "call_depth_max", "gauge", "Deepest nesting of method calls.", maximalCallDepth.get());
+
+		writeMetric(writer, "method_calls_total", "counter", "Calls per method.", "method", getCalls());
+		writeMetric(writer, "allocations_total", "counter", "Instances and arrays allocated per type.", "type", getAllocations());
+		writeMetric(writer, "allocated_bytes_total", "counter", "Estimated bytes allocated per type.", "type", getAllocatedBytes());
+
+		writeMetric(writer, "runs_total", "counter", "Programs interpreted.", runs.sum());
+		writeMetric(writer, "run_seconds_total", "counter", "Wall time spent interpreting programs.", toSeconds(runTime.sum()));
+		writeMetric(writer, "run_seconds_max", "gauge", "Wall time of the longest run.", toSeconds(maximalRunTime.get()));
+
+		writeHeader(writer, "run_seconds", "histogram", "Wall time of runs.");
+
+		for (Map.Entry<String, Long> entry : getRunTimeHistogram().entrySet())
+		{
+			writer.println(PREFIX + "run_seconds_bucket{le=\"" + entry.getKey() + "\"} " + entry.getValue());
+		}
+
+		writer.println(PREFIX + "run_seconds_sum " + toSeconds(runTime.sum()));
+		writer.println(PREFIX + "run_seconds_count " + runs.sum());
+
+		writer.flush();
+	}
+
+	private static void writeHeader(PrintWriter writer, String name, String type, String help)
+	{
+		writer.println("# HELP " + PREFIX + name + " " + help);
+		writer.println("# TYPE " + PREFIX + name + " " + type);
+	}
+
+	private static void writeMetric(PrintWriter writer, String name, String type, String help, Object value)
+	{
+		writeHeader(writer, name, type, help);
+		writer.println(PREFIX + name + " " + value);
+	}
+
+	private static void writeMetric(PrintWriter writer, String name, String type, String help, String label, Map<String, Long> values)
+	{
+		writeHeader(writer, name, type, help);
+
+		for (Map.Entry<String, Long> entry : values.entrySet())
+		{
+			writer.println(PREFIX + name + "{" + label + "=\"" + escapeLabel(entry.getKey()) + "\"} " + entry.getValue());
+		}
+	}
+
+	private static String escapeLabel(String value)
+	{
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	/**
+	 * Writes metrics as a single JSON object
+	 */
+	public void writeJson(Writer output) throws IOException
+	{
+		PrintWriter writer = new PrintWriter(output);
+
+		writer.println("{");
+		writer.println("\t\"statements\": " + statements.sum() + ",");
+		writer.println("\t\"expressions\": " + expressions.sum() + ",");
+		writer.println("\t\"environments\": " + environments.sum() + ",");
+		writer.println("\t\"maximalCallDepth\": " + maximalCallDepth.get() + ",");
+		writer.println("\t\"runs\": " + runs.sum() + ",");
+		writer.println("\t\"runSeconds\": " + toSeconds(runTime.sum()) + ",");
+		writer.println("\t\"maximalRunSeconds\": " + toSeconds(maximalRunTime.get()) + ",");
+		writer.println("\t\"runSecondsHistogram\": " + toJson(getRunTimeHistogram()) + ",");
+		writer.println("\t\"calls\": " + toJson(getCalls()) + ",");
+		writer.println("\t\"allocations\": " + toJson(getAllocations()) + ",");
+		writer.println("\t\"allocatedBytes\": " + toJson(getAllocatedBytes()));
+		writer.println("}");
+
+		writer.flush();
+	}
+
+	private static String toJson(Map<String, Long> values)
+	{
+		StringBuilder builder = new StringBuilder("{");
+
+		for (Map.Entry<String, Long> entry : values.entrySet())
+		{
+			if (builder.length() > 1) builder.append(", ");
+			builder.append('"').append(escapeJson(entry.getKey())).append("\": ").append(entry.getValue());
+		}
+
+		return builder.append('}').toString();
+	}
+
+	private static String escapeJson(String value)
+	{
+		StringBuilder builder = new StringBuilder();
+
+		for (char character : value.toCharArray())
+		{
+			if (character == '"' || character == '\\') builder.append('\\').append(character);
+			else if (character < ' ') builder.append(String.format("\\u%04x", (int) character));
+			else builder.append(character);
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Writes metrics to a file or sends them with a POST request when
+	 * the target is an http(s) URL, such as a Prometheus push gateway,
+	 * targets ending with '.json' get JSON and all others Prometheus text
+	 */
+	public void export(String target) throws IOException
+	{
+		boolean json = target.endsWith(".json");
+
+		if (!target.startsWith("http://") && !target.startsWith("https://"))
+		{
+			try (Writer writer = new FileWriter(target, StandardCharsets.UTF_8))
+			{
+				if (json) writeJson(writer);
+				else writePrometheus(writer);
+			}
+
+			return;
+		}
+
+		HttpURLConnection connection = (HttpURLConnection) new URL(target).openConnection();
+
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setRequestProperty("Content-Type", json ? "application/json" : "text/plain; version=0.0.4");
+
+		try (Writer writer = new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8))
+		{
+			if (json) writeJson(writer);
+			else writePrometheus(writer);
+		}
+
+		int status = connection.getResponseCode();
+		connection.disconnect();
+
+		if (status / 100 != 2)
+		{
+			throw new IOException("Metrics endpoint '" + target + "' responded with status " + status + ".");
+		}
+	}
+}
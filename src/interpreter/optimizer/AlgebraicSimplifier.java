@@ -0,0 +1,424 @@
+package interpreter.optimizer;
+
+import interpreter.ir.Expression;
+import interpreter.ir.Statement;
+
+import java.util.ArrayList;
+
+/**
+ * Folds constant subexpressions, removes algebraic identities and
+ * replaces multiplication, division and modulus by a power of two
+ * with shifts and masks where the result is guaranteed to match
+ *
+ * Expressions are rewritten only when the rewritten form evaluates
+ * the same operands in the same order and fails in the same way,
+ * division or modulus by zero is never folded
+ */
+public class AlgebraicSimplifier extends IRTransformer implements OptimizationPass
+{
+	private ClassHierarchy hierarchy;
+
+	@Override
+	public Statement.Program optimize(Statement.Program program)
+	{
+		hierarchy = new ClassHierarchy(program);
+
+		return (Statement.Program) transform(program);
+	}
+
+	//////////////////////////////////////
+	/////////////// HELPERS //////////////
+	//////////////////////////////////////
+
+	private static Integer integerValue(Expression expression)
+	{
+		if (expression instanceof Expression.Literal && ((Expression.Literal) expression).value instanceof Integer)
+		{
+			return (Integer) ((Expression.Literal) expression).value;
+		}
+
+		return null;
+	}
+
+	private static Boolean booleanValue(Expression expression)
+	{
+		if (expression instanceof Expression.Literal && ((Expression.Literal) expression).value instanceof Boolean)
+		{
+			return (Boolean) ((Expression.Literal) expression).value;
+		}
+
+		return null;
+	}
+
+	private static boolean isPowerOfTwo(Integer value)
+	{
+		return value != null && value > 0 && (value & (value - 1)) == 0;
+	}
+
+	/**
+	 * True for expressions which can be dropped without changing
+	 * behaviour: they have no side effects and can not throw
+	 */
+	private static boolean isDiscardable(Expression expression)
+	{
+		if (expression instanceof Expression.Literal || expression instanceof Expression.Variable)
+		{
+			return true;
+		}
+
+		if (expression instanceof Expression.Unary)
+		{
+			return isDiscardable(((Expression.Unary) expression).right);
+		}
+
+		if (expression instanceof Expression.Binary)
+		{
+			Expression.Binary binary = (Expression.Binary) expression;
+
+			return binary.operation != Expression.Binary.Operation.DIVISION &&
+				   binary.operation != Expression.Binary.Operation.MODULUS &&
+				   isDiscardable(binary.left) && isDiscardable(binary.right);
+		}
+
+		return false;
+	}
+
+	private boolean isBuiltInCall(Expression expression, String name)
+	{
+		if (!(expression instanceof Expression.Call)) return false;
+
+		Expression callee = ((Expression.Call) expression).callee;
+
+		return callee instanceof Expression.Variable &&
+			   ((Expression.Variable) callee).name.equals(name) &&
+			   hierarchy.getGlobalMethod(name) == null &&
+			   !hierarchy.isMemberName(name);
+	}
+
+	/**
+	 * Conservative range check, true only if the integer
+	 * expression can never evaluate to a negative value
+	 */
+	private boolean isNonNegative(Expression expression)
+	{
+		Integer value = integerValue(expression);
+
+		if (value != null) return value >= 0;
+
+		if (isBuiltInCall(expression, "len") || isBuiltInCall(expression, "ord")) return true;
+
+		if (!(expression instanceof Expression.Binary)) return false;
+
+		Expression.Binary binary = (Expression.Binary) expression;
+		Integer right = integerValue(binary.right);
+
+		switch (binary.operation)
+		{
+		case BITWISE_AND:
+			return isNonNegative(binary.left) || isNonNegative(binary.right);
+		case SHIFT_RIGHT:
+			return isNonNegative(binary.left);
+		case DIVISION:
+		case MODULUS:
+			return right != null && right > 0 && isNonNegative(binary.left);
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Structural equality of destinations, both sides
+	 * denote the same variable, field or array element
+	 */
+	private static boolean isSameLocation(Expression first, Expression second)
+	{
+		if (first instanceof Expression.Variable && second instanceof Expression.Variable)
+		{
+			return ((Expression.Variable) first).name.equals(((Expression.Variable) second).name);
+		}
+
+		if (first instanceof Expression.Literal && second instanceof Expression.Literal)
+		{
+			return ((Expression.Literal) first).value.equals(((Expression.Literal) second).value);
+		}
+
+		if (first instanceof Expression.Property && second instanceof Expression.Property)
+		{
+			Expression.Property firstProperty  = (Expression.Property) first;
+			Expression.Property secondProperty = (Expression.Property) second;
+
+			return firstProperty.name.equals(secondProperty.name) &&
+				   isSameLocation(firstProperty.object, secondProperty.object);
+		}
+
+		if (first instanceof Expression.Index && second instanceof Expression.Index)
+		{
+			Expression.Index firstIndex  = (Expression.Index) first;
+			Expression.Index secondIndex = (Expression.Index) second;
+
+			return isSameLocation(firstIndex.array, secondIndex.array) &&
+				   isSameLocation(firstIndex.index, secondIndex.index);
+		}
+
+		return false;
+	}
+
+	private static Expression literal(int line, Object value)
+	{
+		return new Expression.Literal(line, value);
+	}
+
+	//////////////////////////////////////
+	///////////// EXPRESSIONS ////////////
+	//////////////////////////////////////
+
+	@Override
+	public Expression visit(Expression.Binary expression)
+	{
+		return simplify(expression.line, transform(expression.left), expression.operation, transform(expression.right));
+	}
+
+	private Expression simplify(int line, Expression left, Expression.Binary.Operation operation, Expression right)
+	{
+		Integer a = integerValue(left);
+		Integer b = integerValue(right);
+
+		if (a != null && b != null)
+		{
+			Object folded = fold(operation, a, b);
+			if (folded != null) return literal(line, folded);
+		}
+
+		switch (operation)
+		{
+		case ADDITION:
+			if (b != null && b == 0) return left;
+			if (a != null && a == 0) return right;
+			break;
+		case SUBTRACTION:
+			if (b != null && b == 0) return left;
+			if (a != null && a == 0) return negate(line, right);
+			break;
+		case MULTIPLICATION:
+			if (b != null && b == 1) return left;
+			if (a != null && a == 1) return right;
+			if (b != null && b == 0 && isDiscardable(left)) return literal(line, 0);
+			if (a != null && a == 0 && isDiscardable(right)) return literal(line, 0);
+
+			if (isPowerOfTwo(b))
+			{
+				return new Expression.Binary(line, left, Expression.Binary.Operation.SHIFT_LEFT,
+											 literal(line, Integer.numberOfTrailingZeros(b)));
+			}
+
+			if (isPowerOfTwo(a))
+			{
+				return new Expression.Binary(line, right, Expression.Binary.Operation.SHIFT_LEFT,
+											 literal(line, Integer.numberOfTrailingZeros(a)));
+			}
+			break;
+		case DIVISION:
+			if (b != null && b == 1) return left;
+
+			if (isPowerOfTwo(b) && isNonNegative(left))
+			{
+				return new Expression.Binary(line, left, Expression.Binary.Operation.SHIFT_RIGHT,
+											 literal(line, Integer.numberOfTrailingZeros(b)));
+			}
+			break;
+		case MODULUS:
+			if (b != null && b == 1 && isDiscardable(left)) return literal(line, 0);
+
+			if (isPowerOfTwo(b) && isNonNegative(left))
+			{
+				return new Expression.Binary(line, left, Expression.Binary.Operation.BITWISE_AND, literal(line, b - 1));
+			}
+			break;
+		case EQUAL:
+		case NOT_EQUAL:
+			if (left instanceof Expression.Literal && right instanceof Expression.Literal)
+			{
+				boolean equal = ((Expression.Literal) left).value.equals(((Expression.Literal) right).value);
+				return literal(line, (operation == Expression.Binary.Operation.EQUAL) == equal);
+			}
+
+			// literal is moved to the right, operand order
+			// does not matter when one side is a constant
+			if (a != null) return simplify(line, right, operation, left);
+
+			if (b != null) return simplifyComparison(line, left, operation, b);
+			break;
+		default:
+			break;
+		}
+
+		return new Expression.Binary(line, left, operation, right);
+	}
+
+	/**
+	 * Moves constants of 'x + c1 == c2' and alike to the right side,
+	 * exact for equality since integer addition wraps around
+	 */
+	private Expression simplifyComparison(int line, Expression left, Expression.Binary.Operation operation, int value)
+	{
+		if (left instanceof Expression.Unary)
+		{
+			return simplify(line, ((Expression.Unary) left).right, operation, literal(line, -value));
+		}
+
+		if (!(left instanceof Expression.Binary)) return new Expression.Binary(line, left, operation, literal(line, value));
+
+		Expression.Binary binary = (Expression.Binary) left;
+		Integer a = integerValue(binary.left);
+		Integer b = integerValue(binary.right);
+
+		if (binary.operation == Expression.Binary.Operation.ADDITION && b != null)
+		{
+			return simplify(line, binary.left, operation, literal(line, value - b));
+		}
+
+		if (binary.operation == Expression.Binary.Operation.ADDITION && a != null)
+		{
+			return simplify(line, binary.right, operation, literal(line, value - a));
+		}
+
+		if (binary.operation == Expression.Binary.Operation.SUBTRACTION && b != null)
+		{
+			return simplify(line, binary.left, operation, literal(line, value + b));
+		}
+
+		return new Expression.Binary(line, left, operation, literal(line, value));
+	}
+
+	/**
+	 * Result of an operation on two integer constants,
+	 * null if it has to be left for the interpreter
+	 */
+	private static Object fold(Expression.Binary.Operation operation, int a, int b)
+	{
+		switch (operation)
+		{
+		case ADDITION:       return a + b;
+		case SUBTRACTION:    return a - b;
+		case MULTIPLICATION: return a * b;
+		case DIVISION:       return b == 0 ? null : a / b;
+		case MODULUS:        return b == 0 ? null : a % b;
+		case SHIFT_LEFT:     return a << b;
+		case SHIFT_RIGHT:    return a >> b;
+		case BITWISE_AND:    return a & b;
+		case EQUAL:          return a == b;
+		case NOT_EQUAL:      return a != b;
+		case GREATER:        return a > b;
+		case GREATER_EQUAL:  return a >= b;
+		case LESS:           return a < b;
+		case LESS_EQUAL:     return a <= b;
+		default:             return null;
+		}
+	}
+
+	@Override
+	public Expression visit(Expression.Group expression)
+	{
+		// tree structure already encodes the precedence
+		return transform(expression.expression);
+	}
+
+	@Override
+	public Expression visit(Expression.Logical expression)
+	{
+		Expression left  = transform(expression.left);
+		Expression right = transform(expression.right);
+
+		Boolean a = booleanValue(left);
+		Boolean b = booleanValue(right);
+
+		boolean isAnd = expression.operation == Expression.Logical.Operation.AND;
+
+		// 'true && x' and 'false || x' evaluate to x while 'false && x'
+		// and 'true || x' short circuit, 'x && true' and 'x || false'
+		// evaluate to the value of x no matter which way it goes
+		if (a != null) return a == isAnd ? right : left;
+		if (b != null && b == isAnd) return left;
+
+		return new Expression.Logical(expression.line, left, expression.operation, right);
+	}
+
+	@Override
+	public Expression visit(Expression.Unary expression)
+	{
+		Expression right = transform(expression.right);
+
+		if (expression.operation == Expression.Unary.Operation.NEGATION)
+		{
+			return negate(expression.line, right);
+		}
+
+		return new Expression.Unary(expression.line, expression.operation, right);
+	}
+
+	private static Expression negate(int line, Expression expression)
+	{
+		Integer value = integerValue(expression);
+
+		if (value != null) return literal(line, -value);
+
+		if (expression instanceof Expression.Unary &&
+			((Expression.Unary) expression).operation == Expression.Unary.Operation.NEGATION)
+		{
+			return ((Expression.Unary) expression).right;
+		}
+
+		return new Expression.Unary(line, Expression.Unary.Operation.NEGATION, expression);
+	}
+
+	//////////////////////////////////////
+	///////////// STATEMENTS /////////////
+	//////////////////////////////////////
+
+	@Override
+	public Statement visit(Statement.Assignment statement)
+	{
+		Expression destination = transform(statement.destination);
+		Expression value = transform(statement.value);
+
+		// 'x = x + 1' evaluates x twice just like 'x++' does,
+		// which the interpreter updates in place for variables
+		if (value instanceof Expression.Binary)
+		{
+			Expression.Binary binary = (Expression.Binary) value;
+			Integer a = integerValue(binary.left);
+			Integer b = integerValue(binary.right);
+
+			boolean isIncrement = binary.operation == Expression.Binary.Operation.ADDITION &&
+								  ((b != null && b == 1 && isSameLocation(destination, binary.left)) ||
+								   (a != null && a == 1 && isSameLocation(destination, binary.right)));
+
+			boolean isDecrement = binary.operation == Expression.Binary.Operation.SUBTRACTION &&
+								  b != null && b == 1 && isSameLocation(destination, binary.left);
+
+			if (isIncrement) return new Statement.Increment(statement.line, destination);
+			if (isDecrement) return new Statement.Decrement(statement.line, destination);
+		}
+
+		return new Statement.Assignment(statement.line, destination, value);
+	}
+
+	@Override
+	public Statement visit(Statement.If statement)
+	{
+		Expression condition = transform(statement.condition);
+		Boolean value = booleanValue(condition);
+
+		if (value != null)
+		{
+			Statement branch = transform(value ? statement.thenBranch : statement.elseBranch);
+
+			return branch != null ? branch : new Statement.Block(statement.line, new ArrayList<>());
+		}
+
+		return new Statement.If(statement.line,
+								condition,
+								transform(statement.thenBranch),
+								transform(statement.elseBranch));
+	}
+}
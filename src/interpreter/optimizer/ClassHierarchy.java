@@ -0,0 +1,114 @@
+package interpreter.optimizer;
+
+import interpreter.ir.Statement;
+
+import java.util.*;
+
+/**
+ * Class hierarchy analysis over class and method declarations of
+ * a whole program, used to prove that a call has a single target
+ */
+public class ClassHierarchy
+{
+	private final Map<String, Statement.Class> classes = new HashMap<>();
+	private final Map<String, Statement.Method> globalMethods = new HashMap<>();
+
+	/**
+	 * Method name - all class methods declared under that name
+	 */
+	private final Map<String, List<Statement.Method>> classMethods = new HashMap<>();
+	private final Map<Statement.Method, Statement.Class> methodOwners = new HashMap<>();
+
+	private final Set<String> fieldNames = new HashSet<>();
+
+	public ClassHierarchy(Statement.Program program)
+	{
+		for (Statement statement : program.statements)
+		{
+			if (statement instanceof Statement.Class)
+			{
+				Statement.Class declaration = (Statement.Class) statement;
+				classes.put(declaration.name, declaration);
+
+				for (Statement.Class.Field field : declaration.fields)
+				{
+					fieldNames.add(field.name);
+				}
+
+				for (Statement.Method method : declaration.methods)
+				{
+					classMethods.computeIfAbsent(method.name, name -> new ArrayList<>()).add(method);
+					methodOwners.put(method, declaration);
+				}
+			}
+			else if (statement instanceof Statement.Method)
+			{
+				Statement.Method method = (Statement.Method) statement;
+				globalMethods.put(method.name, method);
+			}
+		}
+	}
+
+	public Statement.Class getClass(String name)
+	{
+		return classes.get(name);
+	}
+
+	public Collection<Statement.Class> getClasses()
+	{
+		return classes.values();
+	}
+
+	public Statement.Class getOwner(Statement.Method method)
+	{
+		return methodOwners.get(method);
+	}
+
+	/**
+	 * Global method which is guaranteed to be the target of an
+	 * unqualified call with the given name, method lookup in the
+	 * interpreter consults members of 'this' on the way to globals
+	 * so names shared with any class member do not qualify
+	 */
+	public Statement.Method getGlobalMethod(String name)
+	{
+		if (isMemberName(name)) return null;
+
+		return globalMethods.get(name);
+	}
+
+	public Collection<Statement.Method> getGlobalMethods()
+	{
+		return globalMethods.values();
+	}
+
+	/**
+	 * Class method which is the only possible target of a call
+	 * 'object.name(...)' no matter the dynamic type of the object,
+	 * that is the only method declared under the name in the whole
+	 * hierarchy which is not shadowed by any field either
+	 */
+	public Statement.Method getMonomorphicMethod(String name)
+	{
+		List<Statement.Method> methods = classMethods.get(name);
+
+		if (methods == null || methods.size() != 1 || fieldNames.contains(name)) return null;
+
+		return methods.get(0);
+	}
+
+	public boolean isMemberName(String name)
+	{
+		return classMethods.containsKey(name) || fieldNames.contains(name);
+	}
+
+	public boolean isField(Statement.Class declaration, String name)
+	{
+		for (Statement.Class.Field field : declaration.fields)
+		{
+			if (field.name.equals(name)) return true;
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,389 @@
+package interpreter.optimizer;
+
+import interpreter.ir.Expression;
+import interpreter.ir.Statement;
+
+import java.util.*;
+
+/**
+ * Finds objects allocated into a local variable which never leave
+ * the method: the variable is assigned once and is only ever used
+ * to access fields of the object, directly or through receiver
+ * temporaries introduced by the inliner
+ *
+ * Such an object is replaced by one local per field, the allocation
+ * becomes declarations of those locals so every execution of it
+ * starts from default values just like a freshly created instance
+ */
+public class EscapeAnalyzer extends IRTransformer implements OptimizationPass
+{
+	private ClassHierarchy hierarchy;
+
+	private final Set<String> globals = new HashSet<>();
+
+	/**
+	 * Replaced variable or its alias - variable holding the allocation
+	 */
+	private final Map<String, String> replaced = new HashMap<>();
+	private final Map<String, Statement.Class> types = new HashMap<>();
+	private final Set<Statement> allocations = new HashSet<>();
+
+	/**
+	 * Statement lists produced by this pass, spliced into enclosing list
+	 */
+	private final Set<List<Statement>> spliced = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	@Override
+	public Statement.Program optimize(Statement.Program program)
+	{
+		hierarchy = new ClassHierarchy(program);
+
+		globals.clear();
+
+		for (Statement statement : program.statements)
+		{
+			if (statement instanceof Statement.Constant)
+			{
+				globals.add(((Statement.Constant) statement).name);
+			}
+			else if (statement instanceof Statement.Declaration)
+			{
+				globals.add(((Statement.Declaration) statement).name);
+			}
+		}
+
+		return (Statement.Program) transform(program);
+	}
+
+	private static String rename(String variable, String field)
+	{
+		return variable + Inliner.SEPARATOR + field;
+	}
+
+	//////////////////////////////////////
+	////////////// ANALYSIS //////////////
+	//////////////////////////////////////
+
+	/**
+	 * Every way a local variable is used inside a method body
+	 */
+	private static final class Uses extends IRWalker
+	{
+		public final Set<String> declared = new HashSet<>();
+		public final Map<String, List<Statement.Assignment>> definitions = new HashMap<>();
+		public final Map<String, Set<String>> sources = new HashMap<>();
+		public final Map<String, Set<String>> properties = new HashMap<>();
+		public final Set<String> escaping = new HashSet<>();
+
+		@Override
+		public Void visit(Expression.Property expression)
+		{
+			if (expression.object instanceof Expression.Variable)
+			{
+				String name = ((Expression.Variable) expression.object).name;
+				properties.computeIfAbsent(name, key -> new HashSet<>()).add(expression.name);
+				return null;
+			}
+
+			return super.visit(expression);
+		}
+
+		@Override
+		public Void visit(Expression.Variable expression)
+		{
+			escaping.add(expression.name);
+			return null;
+		}
+
+		@Override
+		public Void visit(Statement.Assignment statement)
+		{
+			if (!(statement.destination instanceof Expression.Variable)) return super.visit(statement);
+
+			String name = ((Expression.Variable) statement.destination).name;
+			definitions.computeIfAbsent(name, key -> new ArrayList<>()).add(statement);
+
+			if (statement.value instanceof Expression.Variable)
+			{
+				String source = ((Expression.Variable) statement.value).name;
+				sources.computeIfAbsent(name, key -> new HashSet<>()).add(source);
+				return null;
+			}
+
+			walk(statement.value);
+			return null;
+		}
+
+		@Override
+		public Void visit(Statement.Declaration statement)
+		{
+			declared.add(statement.name);
+			return null;
+		}
+	}
+
+	/**
+	 * Counts references of the given variables in walked statements
+	 */
+	private static final class References extends IRWalker
+	{
+		private final Set<String> names;
+		public int count;
+
+		public References(Set<String> names)
+		{
+			this.names = names;
+		}
+
+		@Override
+		public Void visit(Expression.Variable expression)
+		{
+			if (names.contains(expression.name)) count++;
+			return null;
+		}
+	}
+
+	private boolean isLocal(Uses uses, String name)
+	{
+		return uses.declared.contains(name) &&
+			   !method.parameters.contains(name) &&
+			   !globals.contains(name) &&
+			   !hierarchy.isMemberName(name) &&
+			   hierarchy.getGlobalMethod(name) == null;
+	}
+
+	private boolean onlyFields(Uses uses, String name, Statement.Class type)
+	{
+		for (String property : uses.properties.getOrDefault(name, Collections.emptySet()))
+		{
+			if (!hierarchy.isField(type, property)) return false;
+		}
+
+		return true;
+	}
+
+	private Statement.Class getAllocatedType(Uses uses, String name)
+	{
+		List<Statement.Assignment> definitions = uses.definitions.get(name);
+
+		if (definitions == null || definitions.size() != 1) return null;
+
+		Expression value = definitions.get(0).value;
+
+		if (!(value instanceof Expression.New) || ((Expression.New) value).size != null) return null;
+
+		return hierarchy.getClass(((Expression.New) value).type);
+	}
+
+	/**
+	 * Generated temporaries assigned nothing but the given variable
+	 */
+	private Set<String> getAliases(Uses uses, String name, Statement.Class type)
+	{
+		Set<String> aliases = new HashSet<>();
+
+		for (Map.Entry<String, Set<String>> entry : uses.sources.entrySet())
+		{
+			if (!entry.getValue().contains(name)) continue;
+
+			String alias = entry.getKey();
+
+			boolean isAlias = alias.contains(Inliner.SEPARATOR) &&
+							  isLocal(uses, alias) &&
+							  entry.getValue().size() == 1 &&
+							  uses.definitions.get(alias).size() == countSources(uses, alias) &&
+							  !uses.escaping.contains(alias) &&
+							  onlyFields(uses, alias, type);
+
+			if (!isAlias) return null;
+
+			aliases.add(alias);
+		}
+
+		return aliases;
+	}
+
+	private static int countSources(Uses uses, String name)
+	{
+		int count = 0;
+
+		for (Statement.Assignment definition : uses.definitions.get(name))
+		{
+			if (definition.value instanceof Expression.Variable) count++;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Statements which follow the given one in the list holding it
+	 */
+	private static List<Statement> getFollowing(List<Statement> body, Statement statement)
+	{
+		List<List<Statement>> lists = new ArrayList<>();
+		lists.add(body);
+
+		new IRWalker()
+		{
+			@Override
+			public Void visit(Statement.Block block)
+			{
+				lists.add(block.statements);
+				return super.visit(block);
+			}
+		}.walk(body);
+
+		for (List<Statement> list : lists)
+		{
+			for (int i = 0; i < list.size(); i++)
+			{
+				if (list.get(i) == statement) return list.subList(i + 1, list.size());
+			}
+		}
+
+		return Collections.emptyList();
+	}
+
+	private void analyze(Statement.Method method)
+	{
+		Uses uses = new Uses();
+		uses.walk(method.body);
+
+		for (String name : uses.definitions.keySet())
+		{
+			Statement.Class type = getAllocatedType(uses, name);
+
+			if (type == null || !isLocal(uses, name) || uses.escaping.contains(name) ||
+				uses.sources.containsKey(name) || !onlyFields(uses, name, type))
+			{
+				continue;
+			}
+
+			Set<String> aliases = getAliases(uses, name, type);
+
+			if (aliases == null) continue;
+
+			// every use has to come after the allocation within
+			// the same statement list, so it always sees the
+			// object created by the latest allocation
+			Statement allocation = uses.definitions.get(name).get(0);
+
+			Set<String> names = new HashSet<>(aliases);
+			names.add(name);
+
+			References all = new References(names);
+			all.walk(method.body);
+
+			References following = new References(names);
+			following.walk(getFollowing(method.body, allocation));
+
+			if (all.count != following.count + 1) continue;
+
+			for (String variable : names) replaced.put(variable, name);
+
+			types.put(name, type);
+			allocations.add(allocation);
+		}
+	}
+
+	//////////////////////////////////////
+	////////////// REWRITING /////////////
+	//////////////////////////////////////
+
+	private Statement splice(int line, List<Statement> statements)
+	{
+		spliced.add(statements);
+		return new Statement.Block(line, statements);
+	}
+
+	@Override
+	public List<Statement> transformStatements(List<Statement> statements)
+	{
+		List<Statement> result = new ArrayList<>(statements.size());
+
+		for (Statement statement : statements)
+		{
+			Statement transformed = transform(statement);
+
+			if (transformed instanceof Statement.Block && spliced.contains(((Statement.Block) transformed).statements))
+			{
+				result.addAll(((Statement.Block) transformed).statements);
+			}
+			else
+			{
+				result.add(transformed);
+			}
+		}
+
+		return result;
+	}
+
+	@Override
+	public Statement visit(Statement.Method statement)
+	{
+		method = statement;
+
+		try
+		{
+			analyze(statement);
+
+			return replaced.isEmpty() ? statement : super.visit(statement);
+		}
+		finally
+		{
+			method = null;
+			replaced.clear();
+			types.clear();
+			allocations.clear();
+		}
+	}
+
+	@Override
+	public Expression visit(Expression.Property expression)
+	{
+		if (expression.object instanceof Expression.Variable)
+		{
+			String variable = replaced.get(((Expression.Variable) expression.object).name);
+
+			if (variable != null) return new Expression.Variable(expression.line, rename(variable, expression.name));
+		}
+
+		return super.visit(expression);
+	}
+
+	@Override
+	public Statement visit(Statement.Assignment statement)
+	{
+		List<Statement> statements = new ArrayList<>();
+
+		if (allocations.contains(statement))
+		{
+			String variable = ((Expression.Variable) statement.destination).name;
+
+			for (Statement.Class.Field field : types.get(variable).fields)
+			{
+				statements.add(new Statement.Declaration(statement.line, field.type, rename(variable, field.name)));
+			}
+
+			return splice(statement.line, statements);
+		}
+
+		// assignments to aliases are dropped, they are
+		// all replaced by locals of the original variable
+		if (statement.destination instanceof Expression.Variable &&
+			replaced.containsKey(((Expression.Variable) statement.destination).name))
+		{
+			return splice(statement.line, statements);
+		}
+
+		return super.visit(statement);
+	}
+
+	@Override
+	public Statement visit(Statement.Declaration statement)
+	{
+		if (replaced.containsKey(statement.name)) return splice(statement.line, new ArrayList<>());
+
+		return statement;
+	}
+}
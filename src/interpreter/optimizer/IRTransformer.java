@@ -0,0 +1,273 @@
+package interpreter.optimizer;
+
+import interpreter.ir.Expression;
+import interpreter.ir.Statement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rebuilds the intermediate representation node by node,
+ * subclasses override visit methods of the nodes they rewrite
+ */
+public abstract class IRTransformer implements Expression.Visitor<Expression>, Statement.Visitor<Statement>
+{
+	/**
+	 * Class and method whose body is currently being rebuilt,
+	 * null while outside of a class or a method respectively
+	 */
+	protected Statement.Class owner;
+	protected Statement.Method method;
+
+	public Expression transform(Expression expression)
+	{
+		return expression == null ? null : expression.accept(this);
+	}
+
+	public Statement transform(Statement statement)
+	{
+		return statement == null ? null : statement.accept(this);
+	}
+
+	public List<Expression> transformExpressions(List<Expression> expressions)
+	{
+		List<Expression> result = new ArrayList<>(expressions.size());
+
+		for (Expression expression : expressions) result.add(transform(expression));
+
+		return result;
+	}
+
+	public List<Statement> transformStatements(List<Statement> statements)
+	{
+		List<Statement> result = new ArrayList<>(statements.size());
+
+		for (Statement statement : statements) result.add(transform(statement));
+
+		return result;
+	}
+
+	//////////////////////////////////////
+	///////////// EXPRESSIONS ////////////
+	//////////////////////////////////////
+
+	@Override
+	public Expression visit(Expression.Binary expression)
+	{
+		return new Expression.Binary(expression.line,
+									 transform(expression.left),
+									 expression.operation,
+									 transform(expression.right));
+	}
+
+	@Override
+	public Expression visit(Expression.Call expression)
+	{
+		return new Expression.Call(expression.line,
+								   transform(expression.callee),
+								   transformExpressions(expression.arguments));
+	}
+
+	@Override
+	public Expression visit(Expression.Group expression)
+	{
+		return new Expression.Group(expression.line, transform(expression.expression));
+	}
+
+	@Override
+	public Expression visit(Expression.Index expression)
+	{
+		return new Expression.Index(expression.line, transform(expression.array), transform(expression.index));
+	}
+
+	@Override
+	public Expression visit(Expression.Literal expression)
+	{
+		return expression;
+	}
+
+	@Override
+	public Expression visit(Expression.Logical expression)
+	{
+		return new Expression.Logical(expression.line,
+									  transform(expression.left),
+									  expression.operation,
+									  transform(expression.right));
+	}
+
+	@Override
+	public Expression visit(Expression.New expression)
+	{
+		return new Expression.New(expression.line, expression.type, transform(expression.size));
+	}
+
+	@Override
+	public Expression visit(Expression.Property expression)
+	{
+		return new Expression.Property(expression.line, transform(expression.object), expression.name);
+	}
+
+	@Override
+	public Expression visit(Expression.Unary expression)
+	{
+		return new Expression.Unary(expression.line, expression.operation, transform(expression.right));
+	}
+
+	@Override
+	public Expression visit(Expression.Variable expression)
+	{
+		return expression;
+	}
+
+	//////////////////////////////////////
+	///////////// STATEMENTS /////////////
+	//////////////////////////////////////
+
+	@Override
+	public Statement visit(Statement.Assignment statement)
+	{
+		return new Statement.Assignment(statement.line,
+										transform(statement.destination),
+										transform(statement.value));
+	}
+
+	@Override
+	public Statement visit(Statement.Block statement)
+	{
+		return new Statement.Block(statement.line, transformStatements(statement.statements));
+	}
+
+	@Override
+	public Statement visit(Statement.Call statement)
+	{
+		// call node itself is rebuilt in place since a call
+		// statement cannot hold any other kind of expression
+		Expression.Call call = statement.expression;
+
+		return new Statement.Call(statement.line, new Expression.Call(call.line,
+																	  transform(call.callee),
+																	  transformExpressions(call.arguments)));
+	}
+
+	@Override
+	public Statement visit(Statement.Class statement)
+	{
+		Statement.Class previous = owner;
+		owner = statement;
+
+		try
+		{
+			List<Statement.Method> methods = new ArrayList<>(statement.methods.size());
+
+			for (Statement.Method method : statement.methods)
+			{
+				methods.add((Statement.Method) transform(method));
+			}
+
+			return new Statement.Class(statement.line, statement.name, statement.superClass, statement.fields, methods);
+		}
+		finally
+		{
+			owner = previous;
+		}
+	}
+
+	@Override
+	public Statement visit(Statement.Constant statement)
+	{
+		return statement;
+	}
+
+	@Override
+	public Statement visit(Statement.Control statement)
+	{
+		return statement;
+	}
+
+	@Override
+	public Statement visit(Statement.Declaration statement)
+	{
+		return statement;
+	}
+
+	@Override
+	public Statement visit(Statement.Decrement statement)
+	{
+		return new Statement.Decrement(statement.line, transform(statement.number));
+	}
+
+	@Override
+	public Statement visit(Statement.For statement)
+	{
+		return new Statement.For(statement.line,
+								 transform(statement.initializer),
+								 transform(statement.condition),
+								 transform(statement.increment),
+								 transform(statement.body));
+	}
+
+	@Override
+	public Statement visit(Statement.If statement)
+	{
+		return new Statement.If(statement.line,
+								transform(statement.condition),
+								transform(statement.thenBranch),
+								transform(statement.elseBranch));
+	}
+
+	@Override
+	public Statement visit(Statement.Increment statement)
+	{
+		return new Statement.Increment(statement.line, transform(statement.number));
+	}
+
+	@Override
+	public Statement visit(Statement.Method statement)
+	{
+		Statement.Method previous = method;
+		method = statement;
+
+		try
+		{
+			return new Statement.Method(statement.line,
+										statement.isVoid,
+										statement.name,
+										statement.parameters,
+										transformStatements(statement.body));
+		}
+		finally
+		{
+			method = previous;
+		}
+	}
+
+	@Override
+	public Statement visit(Statement.Print statement)
+	{
+		return new Statement.Print(statement.line, transform(statement.expression), statement.width);
+	}
+
+	@Override
+	public Statement visit(Statement.Program statement)
+	{
+		return new Statement.Program(statement.line, transformStatements(statement.statements));
+	}
+
+	@Override
+	public Statement visit(Statement.Read statement)
+	{
+		return new Statement.Read(statement.line, statement.type, transform(statement.destination));
+	}
+
+	@Override
+	public Statement visit(Statement.Return statement)
+	{
+		return new Statement.Return(statement.line, transform(statement.value));
+	}
+
+	@Override
+	public Statement visit(Statement.TailCall statement)
+	{
+		return new Statement.TailCall(statement.line, transformExpressions(statement.arguments));
+	}
+}
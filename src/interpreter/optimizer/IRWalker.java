@@ -0,0 +1,231 @@
+package interpreter.optimizer;
+
+import interpreter.ir.Expression;
+import interpreter.ir.Statement;
+
+import java.util.List;
+
+/**
+ * Read-only traversal of the intermediate representation,
+ * subclasses override visit methods of the nodes they are
+ * interested in and call super to continue the traversal
+ */
+public abstract class IRWalker implements Expression.Visitor<Void>, Statement.Visitor<Void>
+{
+	public void walk(Expression expression)
+	{
+		if (expression != null) expression.accept(this);
+	}
+
+	public void walk(Statement statement)
+	{
+		if (statement != null) statement.accept(this);
+	}
+
+	public void walk(List<? extends Statement> statements)
+	{
+		for (Statement statement : statements) walk(statement);
+	}
+
+	//////////////////////////////////////
+	///////////// EXPRESSIONS ////////////
+	//////////////////////////////////////
+
+	@Override
+	public Void visit(Expression.Binary expression)
+	{
+		walk(expression.left);
+		walk(expression.right);
+		return null;
+	}
+
+	@Override
+	public Void visit(Expression.Call expression)
+	{
+		walk(expression.callee);
+		for (Expression argument : expression.arguments) walk(argument);
+		return null;
+	}
+
+	@Override
+	public Void visit(Expression.Group expression)
+	{
+		walk(expression.expression);
+		return null;
+	}
+
+	@Override
+	public Void visit(Expression.Index expression)
+	{
+		walk(expression.array);
+		walk(expression.index);
+		return null;
+	}
+
+	@Override
+	public Void visit(Expression.Literal expression)
+	{
+		return null;
+	}
+
+	@Override
+	public Void visit(Expression.Logical expression)
+	{
+		walk(expression.left);
+		walk(expression.right);
+		return null;
+	}
+
+	@Override
+	public Void visit(Expression.New expression)
+	{
+		walk(expression.size);
+		return null;
+	}
+
+	@Override
+	public Void visit(Expression.Property expression)
+	{
+		walk(expression.object);
+		return null;
+	}
+
+	@Override
+	public Void visit(Expression.Unary expression)
+	{
+		walk(expression.right);
+		return null;
+	}
+
+	@Override
+	public Void visit(Expression.Variable expression)
+	{
+		return null;
+	}
+
+	//////////////////////////////////////
+	///////////// STATEMENTS /////////////
+	//////////////////////////////////////
+
+	@Override
+	public Void visit(Statement.Assignment statement)
+	{
+		walk(statement.destination);
+		walk(statement.value);
+		return null;
+	}
+
+	@Override
+	public Void visit(Statement.Block statement)
+	{
+		walk(statement.statements);
+		return null;
+	}
+
+	@Override
+	public Void visit(Statement.Call statement)
+	{
+		walk(statement.expression);
+		return null;
+	}
+
+	@Override
+	public Void visit(Statement.Class statement)
+	{
+		walk(statement.methods);
+		return null;
+	}
+
+	@Override
+	public Void visit(Statement.Constant statement)
+	{
+		return null;
+	}
+
+	@Override
+	public Void visit(Statement.Control statement)
+	{
+		return null;
+	}
+
+	@Override
+	public Void visit(Statement.Declaration statement)
+	{
+		return null;
+	}
+
+	@Override
+	public Void visit(Statement.Decrement statement)
+	{
+		walk(statement.number);
+		return null;
+	}
+
+	@Override
+	public Void visit(Statement.For statement)
+	{
+		walk(statement.initializer);
+		walk(statement.condition);
+		walk(statement.increment);
+		walk(statement.body);
+		return null;
+	}
+
+	@Override
+	public Void visit(Statement.If statement)
+	{
+		walk(statement.condition);
+		walk(statement.thenBranch);
+		walk(statement.elseBranch);
+		return null;
+	}
+
+	@Override
+	public Void visit(Statement.Increment statement)
+	{
+		walk(statement.number);
+		return null;
+	}
+
+	@Override
+	public Void visit(Statement.Method statement)
+	{
+		walk(statement.body);
+		return null;
+	}
+
+	@Override
+	public Void visit(Statement.Print statement)
+	{
+		walk(statement.expression);
+		return null;
+	}
+
+	@Override
+	public Void visit(Statement.Program statement)
+	{
+		walk(statement.statements);
+		return null;
+	}
+
+	@Override
+	public Void visit(Statement.Read statement)
+	{
+		walk(statement.destination);
+		return null;
+	}
+
+	@Override
+	public Void visit(Statement.Return statement)
+	{
+		walk(statement.value);
+		return null;
+	}
+
+	@Override
+	public Void visit(Statement.TailCall statement)
+	{
+		for (Expression argument : statement.arguments) walk(argument);
+		return null;
+	}
+}
@@ -0,0 +1,680 @@
+package interpreter.optimizer;
+
+import interpreter.Interpreter;
+import interpreter.ir.Expression;
+import interpreter.ir.Statement;
+
+import java.util.*;
+
+/**
+ * Substitutes bodies of small methods at call sites whose target is
+ * known at compile time: global methods and class methods which are
+ * declared by exactly one class in the whole hierarchy
+ *
+ * Parameters and locals of the callee are renamed to names which are
+ * not valid MicroJava identifiers so they can never capture a name
+ * of the caller, implicit field accesses are made explicit through
+ * a temporary holding the receiver
+ */
+public class Inliner extends IRTransformer implements OptimizationPass
+{
+	/**
+	 * Maximal number of intermediate code nodes in an inlined method body
+	 */
+	public static final int DEFAULT_BUDGET = 32;
+
+	static final String SEPARATOR = "$";
+
+	private final int budget;
+
+	private ClassHierarchy hierarchy;
+
+	private final Map<Statement.Method, Boolean> inlineable = new HashMap<>();
+
+	private int counter;
+
+	private static final class Site
+	{
+		public final Statement.Method callee;
+		public final Statement.Class owner;
+		public final Expression receiver;
+		public final List<Expression> arguments;
+
+		public Site(Statement.Method callee, Statement.Class owner, Expression receiver, List<Expression> arguments)
+		{
+			this.callee = callee;
+			this.owner = owner;
+			this.receiver = receiver;
+			this.arguments = arguments;
+		}
+	}
+
+	private static final class Expansion
+	{
+		public final List<Statement> statements = new ArrayList<>();
+		public Expression result;
+	}
+
+	public Inliner()
+	{
+		this(DEFAULT_BUDGET);
+	}
+
+	public Inliner(int budget)
+	{
+		this.budget = budget;
+	}
+
+	@Override
+	public Statement.Program optimize(Statement.Program program)
+	{
+		hierarchy = new ClassHierarchy(program);
+		inlineable.clear();
+
+		return (Statement.Program) transform(program);
+	}
+
+	//////////////////////////////////////
+	//////////// HELPER METHODS //////////
+	//////////////////////////////////////
+
+	private Site resolve(Expression expression)
+	{
+		// only method bodies are rewritten, entry point
+		// call at the end of the program is left intact
+		if (method == null || !(expression instanceof Expression.Call)) return null;
+
+		Expression.Call call = (Expression.Call) expression;
+
+		Statement.Method callee;
+		Statement.Class calleeOwner = null;
+		Expression receiver = null;
+
+		if (call.callee instanceof Expression.Variable)
+		{
+			callee = hierarchy.getGlobalMethod(((Expression.Variable) call.callee).name);
+		}
+		else if (call.callee instanceof Expression.Property)
+		{
+			Expression.Property property = (Expression.Property) call.callee;
+
+			callee = hierarchy.getMonomorphicMethod(property.name);
+			calleeOwner = callee == null ? null : hierarchy.getOwner(callee);
+			receiver = property.object;
+		}
+		else
+		{
+			return null;
+		}
+
+		if (callee == null || callee == method || callee.parameters.size() != call.arguments.size())
+		{
+			return null;
+		}
+
+		if (!isInlineable(callee, calleeOwner)) return null;
+
+		// receiver is checked before the arguments are evaluated
+		// but they may not call anything which could change it
+		if (calleeOwner != null)
+		{
+			for (Expression argument : call.arguments)
+			{
+				if (containsCall(argument)) return null;
+			}
+		}
+
+		return new Site(callee, calleeOwner, receiver, call.arguments);
+	}
+
+	private boolean isInlineable(Statement.Method callee, Statement.Class calleeOwner)
+	{
+		return inlineable.computeIfAbsent(callee, key -> checkInlineable(callee, calleeOwner));
+	}
+
+	private boolean checkInlineable(Statement.Method callee, Statement.Class calleeOwner)
+	{
+		List<Statement> body = callee.body;
+
+		if (countNodes(body) > budget) return false;
+
+		// the only way out of an inlined body is falling off its end
+		int returns = countReturns(body);
+		Statement last = body.isEmpty() ? null : body.get(body.size() - 1);
+
+		if (callee.isVoid)
+		{
+			if (returns > 1 || (returns == 1 && !(last instanceof Statement.Return))) return false;
+		}
+		else if (returns != 1 || !(last instanceof Statement.Return) || ((Statement.Return) last).value == null)
+		{
+			return false;
+		}
+
+		if (isRecursive(callee)) return false;
+
+		if (calleeOwner != null)
+		{
+			// null receiver has to fail inside the inlined body just
+			// like it would when looking the method up, so the body
+			// may not call anything and it must touch the receiver
+			// before doing anything else
+			for (Statement statement : body)
+			{
+				if (containsCall(statement)) return false;
+			}
+
+			return touchesReceiver(callee, calleeOwner);
+		}
+
+		return true;
+	}
+
+	private boolean isExpressionInlineable(Site site)
+	{
+		List<Statement> body = site.callee.body;
+
+		if (body.size() != 1 || !(body.get(0) instanceof Statement.Return)) return false;
+
+		Expression value = ((Statement.Return) body.get(0)).value;
+
+		if (value == null || containsCall(value)) return false;
+
+		if (site.receiver != null && !isSimple(site.receiver)) return false;
+
+		return areSimple(site.arguments);
+	}
+
+	private boolean areSimple(List<Expression> expressions)
+	{
+		for (Expression expression : expressions)
+		{
+			if (!isSimple(expression)) return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Expressions which can be evaluated any number
+	 * of times without changing the result or failing
+	 */
+	private boolean isSimple(Expression expression)
+	{
+		return expression instanceof Expression.Literal || expression instanceof Expression.Variable;
+	}
+
+	private String rename(String name, int id)
+	{
+		return name + SEPARATOR + id;
+	}
+
+	private Set<String> getLocals(Statement.Method callee)
+	{
+		Set<String> locals = new HashSet<>(callee.parameters);
+
+		new IRWalker()
+		{
+			@Override
+			public Void visit(Statement.Declaration statement)
+			{
+				locals.add(statement.name);
+				return null;
+			}
+		}.walk(callee.body);
+
+		return locals;
+	}
+
+	private Expansion expand(Site site, int line)
+	{
+		int id = ++counter;
+
+		Map<String, Expression> variables = new HashMap<>();
+		Expansion expansion = new Expansion();
+
+		if (site.receiver != null)
+		{
+			String name = rename(Interpreter.THIS, id);
+			variables.put(Interpreter.THIS, new Expression.Variable(line, name));
+
+			expansion.statements.add(new Statement.Declaration(line, Statement.Declaration.Type.REFERENCE, name));
+			expansion.statements.add(new Statement.Assignment(line,
+															  new Expression.Variable(line, name),
+															  transform(site.receiver)));
+
+			// looking the method up fails on a null receiver before any
+			// argument is evaluated, arguments which could fail themselves
+			// must not get to report their error first
+			if (!areSimple(site.arguments))
+			{
+				String check = name + SEPARATOR;
+
+				expansion.statements.add(new Statement.Declaration(line, Statement.Declaration.Type.REFERENCE, check));
+				expansion.statements.add(new Statement.Assignment(line,
+																  new Expression.Variable(line, check),
+																  new Expression.Property(line, new Expression.Variable(line, name), site.callee.name)));
+			}
+		}
+
+		for (int i = 0; i < site.callee.parameters.size(); i++)
+		{
+			String name = rename(site.callee.parameters.get(i), id);
+			variables.put(site.callee.parameters.get(i), new Expression.Variable(line, name));
+
+			expansion.statements.add(new Statement.Declaration(line, Statement.Declaration.Type.REFERENCE, name));
+			expansion.statements.add(new Statement.Assignment(line,
+															  new Expression.Variable(line, name),
+															  transform(site.arguments.get(i))));
+		}
+
+		for (String local : getLocals(site.callee))
+		{
+			variables.putIfAbsent(local, new Expression.Variable(line, rename(local, id)));
+		}
+
+		Substitution substitution = new Substitution(variables, site.owner, line);
+
+		for (Statement statement : site.callee.body)
+		{
+			if (statement instanceof Statement.Return)
+			{
+				expansion.result = substitution.transform(((Statement.Return) statement).value);
+			}
+			else
+			{
+				expansion.statements.add(substitution.transform(statement));
+			}
+		}
+
+		return expansion;
+	}
+
+	private Expression substitute(Site site, int line)
+	{
+		Map<String, Expression> variables = new HashMap<>();
+
+		if (site.receiver != null)
+		{
+			variables.put(Interpreter.THIS, transform(site.receiver));
+		}
+
+		for (int i = 0; i < site.callee.parameters.size(); i++)
+		{
+			variables.put(site.callee.parameters.get(i), transform(site.arguments.get(i)));
+		}
+
+		Expression value = ((Statement.Return) site.callee.body.get(0)).value;
+
+		return new Substitution(variables, site.owner, line).transform(value);
+	}
+
+	//////////////////////////////////////
+	////////////// ANALYSIS //////////////
+	//////////////////////////////////////
+
+	private static int countNodes(List<Statement> statements)
+	{
+		int[] count = new int[1];
+
+		IRWalker counter = new IRWalker()
+		{
+			@Override
+			public void walk(Expression expression)
+			{
+				if (expression != null) count[0]++;
+				super.walk(expression);
+			}
+
+			@Override
+			public void walk(Statement statement)
+			{
+				if (statement != null) count[0]++;
+				super.walk(statement);
+			}
+		};
+
+		counter.walk(statements);
+		return count[0];
+	}
+
+	private static int countReturns(List<Statement> statements)
+	{
+		int[] count = new int[1];
+
+		new IRWalker()
+		{
+			@Override
+			public Void visit(Statement.Return statement)
+			{
+				count[0]++;
+				return super.visit(statement);
+			}
+
+			@Override
+			public Void visit(Statement.TailCall statement)
+			{
+				count[0]++;
+				return super.visit(statement);
+			}
+		}.walk(statements);
+
+		return count[0];
+	}
+
+	private static boolean containsCall(Statement statement)
+	{
+		boolean[] found = new boolean[1];
+
+		new IRWalker()
+		{
+			@Override
+			public Void visit(Expression.Call expression)
+			{
+				found[0] = true;
+				return null;
+			}
+		}.walk(statement);
+
+		return found[0];
+	}
+
+	private static boolean containsCall(Expression expression)
+	{
+		boolean[] found = new boolean[1];
+
+		new IRWalker()
+		{
+			@Override
+			public Void visit(Expression.Call expression)
+			{
+				found[0] = true;
+				return null;
+			}
+		}.walk(expression);
+
+		return found[0];
+	}
+
+	private static boolean isRecursive(Statement.Method callee)
+	{
+		boolean[] found = new boolean[1];
+
+		new IRWalker()
+		{
+			@Override
+			public Void visit(Expression.Call expression)
+			{
+				String name = null;
+
+				if (expression.callee instanceof Expression.Variable)
+				{
+					name = ((Expression.Variable) expression.callee).name;
+				}
+				else if (expression.callee instanceof Expression.Property)
+				{
+					name = ((Expression.Property) expression.callee).name;
+				}
+
+				if (callee.name.equals(name)) found[0] = true;
+
+				return super.visit(expression);
+			}
+		}.walk(callee.body);
+
+		return found[0];
+	}
+
+	/**
+	 * Whether the first statement with an effect is certain to
+	 * access a field of the receiver, in which case inlined body
+	 * fails on a null receiver before anything observable happens
+	 */
+	private boolean touchesReceiver(Statement.Method callee, Statement.Class calleeOwner)
+	{
+		Set<String> locals = getLocals(callee);
+
+		for (Statement statement : callee.body)
+		{
+			if (statement instanceof Statement.Declaration) continue;
+
+			if (statement instanceof Statement.Assignment)
+			{
+				Statement.Assignment assignment = (Statement.Assignment) statement;
+
+				return dereferences(assignment.value, locals, calleeOwner) ||
+					   dereferences(assignment.destination, locals, calleeOwner);
+			}
+
+			if (statement instanceof Statement.Return)
+			{
+				return dereferences(((Statement.Return) statement).value, locals, calleeOwner);
+			}
+
+			if (statement instanceof Statement.Print)
+			{
+				return dereferences(((Statement.Print) statement).expression, locals, calleeOwner);
+			}
+
+			if (statement instanceof Statement.Increment)
+			{
+				return dereferences(((Statement.Increment) statement).number, locals, calleeOwner);
+			}
+
+			if (statement instanceof Statement.Decrement)
+			{
+				return dereferences(((Statement.Decrement) statement).number, locals, calleeOwner);
+			}
+
+			if (statement instanceof Statement.If)
+			{
+				return dereferences(((Statement.If) statement).condition, locals, calleeOwner);
+			}
+
+			return false;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Whether evaluation of the expression always accesses a field of 'this'
+	 */
+	private boolean dereferences(Expression expression, Set<String> locals, Statement.Class calleeOwner)
+	{
+		if (expression instanceof Expression.Variable)
+		{
+			String name = ((Expression.Variable) expression).name;
+			return !locals.contains(name) && hierarchy.isField(calleeOwner, name);
+		}
+
+		if (expression instanceof Expression.Property)
+		{
+			Expression object = ((Expression.Property) expression).object;
+
+			return (object instanceof Expression.Variable &&
+					((Expression.Variable) object).name.equals(Interpreter.THIS)) ||
+				   dereferences(object, locals, calleeOwner);
+		}
+
+		if (expression instanceof Expression.Binary)
+		{
+			Expression.Binary binary = (Expression.Binary) expression;
+
+			return dereferences(binary.left, locals, calleeOwner) ||
+				   dereferences(binary.right, locals, calleeOwner);
+		}
+
+		if (expression instanceof Expression.Logical)
+		{
+			return dereferences(((Expression.Logical) expression).left, locals, calleeOwner);
+		}
+
+		if (expression instanceof Expression.Index)
+		{
+			Expression.Index index = (Expression.Index) expression;
+
+			return dereferences(index.array, locals, calleeOwner) ||
+				   dereferences(index.index, locals, calleeOwner);
+		}
+
+		if (expression instanceof Expression.Group)
+		{
+			return dereferences(((Expression.Group) expression).expression, locals, calleeOwner);
+		}
+
+		if (expression instanceof Expression.Unary)
+		{
+			return dereferences(((Expression.Unary) expression).right, locals, calleeOwner);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Rewrites a callee body into the context of its caller, accesses
+	 * through the receiver report the line of the call site since that
+	 * is where a null receiver would have been detected
+	 */
+	private final class Substitution extends IRTransformer
+	{
+		private final Map<String, Expression> variables;
+		private final Statement.Class calleeOwner;
+		private final int line;
+
+		public Substitution(Map<String, Expression> variables, Statement.Class calleeOwner, int line)
+		{
+			this.variables = variables;
+			this.calleeOwner = calleeOwner;
+			this.line = line;
+		}
+
+		private boolean isReceiver(Expression expression)
+		{
+			return expression instanceof Expression.Variable &&
+				   ((Expression.Variable) expression).name.equals(Interpreter.THIS);
+		}
+
+		@Override
+		public Expression visit(Expression.Property expression)
+		{
+			if (calleeOwner != null && isReceiver(expression.object))
+			{
+				return new Expression.Property(line, transform(expression.object), expression.name);
+			}
+
+			return super.visit(expression);
+		}
+
+		@Override
+		public Expression visit(Expression.Variable expression)
+		{
+			Expression replacement = variables.get(expression.name);
+
+			if (replacement instanceof Expression.Variable)
+			{
+				return new Expression.Variable(expression.line, ((Expression.Variable) replacement).name);
+			}
+
+			if (replacement != null) return replacement;
+
+			if (calleeOwner != null && hierarchy.isField(calleeOwner, expression.name))
+			{
+				return visit(new Expression.Property(line, new Expression.Variable(line, Interpreter.THIS), expression.name));
+			}
+
+			return expression;
+		}
+
+		@Override
+		public Statement visit(Statement.Declaration statement)
+		{
+			Expression replacement = variables.get(statement.name);
+
+			if (replacement instanceof Expression.Variable)
+			{
+				return new Statement.Declaration(statement.line, statement.type, ((Expression.Variable) replacement).name);
+			}
+
+			return statement;
+		}
+	}
+
+	//////////////////////////////////////
+	////////////// CALL SITES ////////////
+	//////////////////////////////////////
+
+	@Override
+	public Expression visit(Expression.Call expression)
+	{
+		Site site = resolve(expression);
+
+		if (site != null && isExpressionInlineable(site))
+		{
+			return substitute(site, expression.line);
+		}
+
+		return super.visit(expression);
+	}
+
+	@Override
+	public Statement visit(Statement.Call statement)
+	{
+		Site site = resolve(statement.expression);
+
+		if (site == null) return super.visit(statement);
+
+		Expansion expansion = expand(site, statement.line);
+		Expression result = expansion.result;
+
+		// value of a discarded result is still computed for its errors
+		if (result != null && !isSimple(result))
+		{
+			String name = rename("result", ++counter);
+
+			expansion.statements.add(new Statement.Declaration(statement.line, Statement.Declaration.Type.REFERENCE, name));
+			expansion.statements.add(new Statement.Assignment(statement.line, new Expression.Variable(statement.line, name), result));
+		}
+
+		return new Statement.Block(statement.line, expansion.statements);
+	}
+
+	@Override
+	public Statement visit(Statement.Assignment statement)
+	{
+		Site site = resolve(statement.value);
+
+		if (site == null || site.callee.isVoid || isExpressionInlineable(site)) return super.visit(statement);
+
+		Expansion expansion = expand(site, statement.line);
+		expansion.statements.add(new Statement.Assignment(statement.line, transform(statement.destination), expansion.result));
+
+		return new Statement.Block(statement.line, expansion.statements);
+	}
+
+	@Override
+	public Statement visit(Statement.Print statement)
+	{
+		Site site = resolve(statement.expression);
+
+		if (site == null || site.callee.isVoid || isExpressionInlineable(site)) return super.visit(statement);
+
+		Expansion expansion = expand(site, statement.line);
+		expansion.statements.add(new Statement.Print(statement.line, expansion.result, statement.width));
+
+		return new Statement.Block(statement.line, expansion.statements);
+	}
+
+	@Override
+	public Statement visit(Statement.Return statement)
+	{
+		Site site = resolve(statement.value);
+
+		if (site == null || site.callee.isVoid || isExpressionInlineable(site)) return super.visit(statement);
+
+		Expansion expansion = expand(site, statement.line);
+		expansion.statements.add(new Statement.Return(statement.line, expansion.result));
+
+		return new Statement.Block(statement.line, expansion.statements);
+	}
+}
@@ -0,0 +1,8 @@
+package interpreter.optimizer;
+
+import interpreter.ir.Statement;
+
+public interface OptimizationPass
+{
+	Statement.Program optimize(Statement.Program program);
+}
@@ -0,0 +1,47 @@
+package interpreter.optimizer;
+
+import interpreter.ir.Statement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs optimization passes over the intermediate
+ * code of a whole program, one after another
+ */
+public class Optimizer implements OptimizationPass
+{
+	private final List<OptimizationPass> passes = new ArrayList<>();
+
+	public Optimizer()
+	{
+		passes.add(new Inliner());
+		passes.add(new AlgebraicSimplifier());
+		passes.add(new EscapeAnalyzer());
+		passes.add(new TailCallEliminator());
+	}
+
+	/**
+	 * Every pass when optimizing, tail call elimination alone when only
+	 * that is asked for and no pass at all otherwise, so code which was
+	 * not asked to be optimized is written the way it was generated
+	 */
+	public static OptimizationPass of(boolean optimize, boolean eliminateTailCalls)
+	{
+		if (optimize) return new Optimizer();
+		if (eliminateTailCalls) return new TailCallEliminator();
+
+		return program -> program;
+	}
+
+	@Override
+	public Statement.Program optimize(Statement.Program program)
+	{
+		for (OptimizationPass pass : passes)
+		{
+			program = pass.optimize(program);
+		}
+
+		return program;
+	}
+}
@@ -0,0 +1,209 @@
+package interpreter.optimizer;
+
+import interpreter.ir.Expression;
+import interpreter.ir.Statement;
+
+import java.util.*;
+
+/**
+ * Finds global methods whose result depends only on their arguments:
+ * they read nothing but their own parameters and locals and global
+ * constants, write only their own locals, do no input or output, do
+ * not allocate and call nothing but other such methods
+ */
+public class PurityAnalyzer
+{
+	private static final Set<String> BUILT_IN_METHODS = new HashSet<>(Arrays.asList("chr", "ord", "len"));
+	private static final Set<String> BUILT_IN_CONSTANTS = new HashSet<>(Arrays.asList("null", "eol"));
+
+	private ClassHierarchy hierarchy;
+
+	private final Set<String> constants = new HashSet<>();
+	private final Set<String> globals = new HashSet<>();
+
+	public Set<Statement.Method> analyze(Statement.Program program)
+	{
+		hierarchy = new ClassHierarchy(program);
+
+		constants.clear();
+		constants.addAll(BUILT_IN_CONSTANTS);
+		globals.clear();
+
+		for (Statement statement : program.statements)
+		{
+			if (statement instanceof Statement.Constant)
+			{
+				constants.add(((Statement.Constant) statement).name);
+			}
+			else if (statement instanceof Statement.Declaration)
+			{
+				globals.add(((Statement.Declaration) statement).name);
+			}
+		}
+
+		Set<Statement.Method> pure = new HashSet<>();
+
+		for (Statement.Method method : hierarchy.getGlobalMethods())
+		{
+			if (hierarchy.getGlobalMethod(method.name) == method && !globals.contains(method.name))
+			{
+				pure.add(method);
+			}
+		}
+
+		// optimistic fixed point, methods are assumed pure
+		// until they are proven to depend on an impure one
+		boolean changed = true;
+
+		while (changed)
+		{
+			changed = false;
+
+			for (Statement.Method method : new ArrayList<>(pure))
+			{
+				if (!isPure(method, pure))
+				{
+					pure.remove(method);
+					changed = true;
+				}
+			}
+		}
+
+		return pure;
+	}
+
+	private boolean isPure(Statement.Method method, Set<Statement.Method> pure)
+	{
+		Set<String> locals = new HashSet<>(method.parameters);
+
+		new IRWalker()
+		{
+			@Override
+			public Void visit(Statement.Declaration statement)
+			{
+				locals.add(statement.name);
+				return null;
+			}
+		}.walk(method.body);
+
+		PurityChecker checker = new PurityChecker(locals, pure);
+		checker.walk(method.body);
+
+		return checker.pure;
+	}
+
+	private final class PurityChecker extends IRWalker
+	{
+		private final Set<String> locals;
+		private final Set<Statement.Method> pureMethods;
+
+		private boolean pure = true;
+
+		public PurityChecker(Set<String> locals, Set<Statement.Method> pureMethods)
+		{
+			this.locals = locals;
+			this.pureMethods = pureMethods;
+		}
+
+		private boolean isLocal(Expression expression)
+		{
+			return expression instanceof Expression.Variable &&
+				   locals.contains(((Expression.Variable) expression).name);
+		}
+
+		private boolean isPureCallee(String name)
+		{
+			if (locals.contains(name) || globals.contains(name)) return false;
+
+			Statement.Method callee = hierarchy.getGlobalMethod(name);
+
+			if (callee != null) return pureMethods.contains(callee);
+
+			return BUILT_IN_METHODS.contains(name) && !hierarchy.isMemberName(name);
+		}
+
+		@Override
+		public Void visit(Expression.Call expression)
+		{
+			if (!(expression.callee instanceof Expression.Variable) ||
+				!isPureCallee(((Expression.Variable) expression.callee).name))
+			{
+				pure = false;
+			}
+
+			for (Expression argument : expression.arguments) walk(argument);
+			return null;
+		}
+
+		@Override
+		public Void visit(Expression.Index expression)
+		{
+			pure = false;
+			return null;
+		}
+
+		@Override
+		public Void visit(Expression.New expression)
+		{
+			pure = false;
+			return null;
+		}
+
+		@Override
+		public Void visit(Expression.Property expression)
+		{
+			pure = false;
+			return null;
+		}
+
+		@Override
+		public Void visit(Expression.Variable expression)
+		{
+			String name = expression.name;
+
+			if (!locals.contains(name) && (!constants.contains(name) || hierarchy.isMemberName(name)))
+			{
+				pure = false;
+			}
+
+			return null;
+		}
+
+		@Override
+		public Void visit(Statement.Assignment statement)
+		{
+			if (!isLocal(statement.destination)) pure = false;
+
+			walk(statement.value);
+			return null;
+		}
+
+		@Override
+		public Void visit(Statement.Decrement statement)
+		{
+			if (!isLocal(statement.number)) pure = false;
+			return null;
+		}
+
+		@Override
+		public Void visit(Statement.Increment statement)
+		{
+			if (!isLocal(statement.number)) pure = false;
+			return null;
+		}
+
+		@Override
+		public Void visit(Statement.Print statement)
+		{
+			pure = false;
+			return null;
+		}
+
+		@Override
+		public Void visit(Statement.Read statement)
+		{
+			pure = false;
+			return null;
+		}
+	}
+}
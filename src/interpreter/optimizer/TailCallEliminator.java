@@ -0,0 +1,80 @@
+package interpreter.optimizer;
+
+import interpreter.Interpreter;
+import interpreter.ir.Expression;
+import interpreter.ir.Statement;
+
+/**
+ * Replaces 'return f(...)' inside of 'f' itself with a tail call
+ * statement, interpreter executes it by rebinding parameters and
+ * restarting the body so recursion in tail position runs in
+ * constant stack space
+ *
+ * Only calls which are guaranteed to reach the enclosing method
+ * qualify: global methods which share no name with class members
+ * and class methods declared by a single class, called on 'this'
+ */
+public class TailCallEliminator extends IRTransformer implements OptimizationPass
+{
+	private ClassHierarchy hierarchy;
+
+	@Override
+	public Statement.Program optimize(Statement.Program program)
+	{
+		hierarchy = new ClassHierarchy(program);
+
+		return (Statement.Program) transform(program);
+	}
+
+	private boolean isSelfCall(Expression expression)
+	{
+		if (method == null || !(expression instanceof Expression.Call)) return false;
+
+		Expression.Call call = (Expression.Call) expression;
+
+		if (call.arguments.size() != method.parameters.size()) return false;
+
+		if (owner == null)
+		{
+			return call.callee instanceof Expression.Variable &&
+				   ((Expression.Variable) call.callee).name.equals(method.name) &&
+				   hierarchy.getGlobalMethod(method.name) == method;
+		}
+
+		if (hierarchy.getMonomorphicMethod(method.name) != method) return false;
+
+		if (call.callee instanceof Expression.Variable)
+		{
+			return ((Expression.Variable) call.callee).name.equals(method.name);
+		}
+
+		if (call.callee instanceof Expression.Property)
+		{
+			Expression.Property property = (Expression.Property) call.callee;
+
+			return property.name.equals(method.name) &&
+				   property.object instanceof Expression.Variable &&
+				   ((Expression.Variable) property.object).name.equals(Interpreter.THIS);
+		}
+
+		return false;
+	}
+
+	@Override
+	public Statement visit(Statement.Return statement)
+	{
+		Expression value = statement.value;
+
+		while (value instanceof Expression.Group)
+		{
+			value = ((Expression.Group) value).expression;
+		}
+
+		if (isSelfCall(value))
+		{
+			return new Statement.TailCall(statement.line, transformExpressions(((Expression.Call) value).arguments));
+		}
+
+		return super.visit(statement);
+	}
+}
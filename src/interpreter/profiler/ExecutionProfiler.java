@@ -0,0 +1,291 @@
+package interpreter.profiler;
+
+import interpreter.ir.Statement;
+import interpreter.runtime.MethodNames;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+ * Counts statement executions and measures time spent per source
+ * line and per method, self time of a line or a method excludes
+ * time of statements and calls nested in it
+ *
+ * Inclusive time is added only when the outermost activation of
+ * a line or a method ends so recursion is not counted twice
+ */
+public class ExecutionProfiler
+{
+	public static final int DEFAULT_HOTSPOTS = 20;
+
+	private static final double NANOSECONDS_PER_MILLISECOND = 1e6;
+
+	//////////////////////////////////////
+	/////////////// LINES ////////////////
+	//////////////////////////////////////
+
+	private long[] executions = new long[64];
+	private long[] inclusiveTimes = new long[64];
+	private long[] selfTimes = new long[64];
+	private int[] activations = new int[64];
+
+	/**
+	 * Statements being executed, innermost on top
+	 */
+	private int[] statementLines = new int[64];
+	private long[] statementStarts = new long[64];
+	private long[] statementChildren = new long[64];
+	private int statementDepth;
+
+	//////////////////////////////////////
+	////////////// METHODS ///////////////
+	//////////////////////////////////////
+
+	private static final class MethodStatistics
+	{
+		public final String name;
+
+		public long calls;
+		public long inclusiveTime;
+		public long selfTime;
+		public int activations;
+
+		public MethodStatistics(String name)
+		{
+			this.name = name;
+		}
+	}
+
+	/**
+	 * Node of the calling context tree, one per distinct stack of methods
+	 */
+	private static final class CallNode
+	{
+		public final String name;
+		public final CallNode parent;
+		public final Map<Statement.Method, CallNode> children = new IdentityHashMap<>();
+
+		public long selfTime;
+
+		public CallNode(String name, CallNode parent)
+		{
+			this.name = name;
+			this.parent = parent;
+		}
+	}
+
+	private final Map<Statement.Method, MethodStatistics> methods = new IdentityHashMap<>();
+
+	private final CallNode root = new CallNode(null, null);
+	private CallNode current = root;
+
+	private MethodStatistics[] callStatistics = new MethodStatistics[64];
+	private long[] callStarts = new long[64];
+	private long[] callChildren = new long[64];
+	private int callDepth;
+
+	/**
+	 * Names methods after their classes, must be called
+	 * before the program starts executing
+	 */
+	public void start(Statement.Program program)
+	{
+		for (Map.Entry<Statement.Method, String> entry : MethodNames.of(program).entrySet())
+		{
+			methods.put(entry.getKey(), new MethodStatistics(entry.getValue()));
+		}
+	}
+
+	//////////////////////////////////////
+	//////////// INSTRUMENTATION /////////
+	//////////////////////////////////////
+
+	public void enterStatement(int line)
+	{
+		if (line >= executions.length)
+		{
+			int length = Math.max(line + 1, executions.length * 2);
+
+			executions = Arrays.copyOf(executions, length);
+			inclusiveTimes = Arrays.copyOf(inclusiveTimes, length);
+			selfTimes = Arrays.copyOf(selfTimes, length);
+			activations = Arrays.copyOf(activations, length);
+		}
+
+		if (statementDepth == statementLines.length)
+		{
+			statementLines = Arrays.copyOf(statementLines, statementDepth * 2);
+			statementStarts = Arrays.copyOf(statementStarts, statementDepth * 2);
+			statementChildren = Arrays.copyOf(statementChildren, statementDepth * 2);
+		}
+
+		executions[line]++;
+		activations[line]++;
+
+		statementLines[statementDepth] = line;
+		statementChildren[statementDepth] = 0;
+		statementStarts[statementDepth++] = System.nanoTime();
+	}
+
+	public void exitStatement()
+	{
+		int top = --statementDepth;
+		int line = statementLines[top];
+		long duration = System.nanoTime() - statementStarts[top];
+
+		selfTimes[line] += duration - statementChildren[top];
+
+		if (--activations[line] == 0) inclusiveTimes[line] += duration;
+
+		if (top > 0) statementChildren[top - 1] += duration;
+	}
+
+	public void enterMethod(Statement.Method method)
+	{
+		MethodStatistics statistics = methods.computeIfAbsent(method, key -> new MethodStatistics(key.name));
+
+		CallNode node = current.children.get(method);
+
+		if (node == null)
+		{
+			node = new CallNode(statistics.name, current);
+			current.children.put(method, node);
+		}
+
+		current = node;
+
+		if (callDepth == callStatistics.length)
+		{
+			callStatistics = Arrays.copyOf(callStatistics, callDepth * 2);
+			callStarts = Arrays.copyOf(callStarts, callDepth * 2);
+			callChildren = Arrays.copyOf(callChildren, callDepth * 2);
+		}
+
+		statistics.calls++;
+		statistics.activations++;
+
+		callStatistics[callDepth] = statistics;
+		callChildren[callDepth] = 0;
+		callStarts[callDepth++] = System.nanoTime();
+	}
+
+	public void exitMethod()
+	{
+		int top = --callDepth;
+		MethodStatistics statistics = callStatistics[top];
+		long duration = System.nanoTime() - callStarts[top];
+		long selfTime = duration - callChildren[top];
+
+		statistics.selfTime += selfTime;
+		current.selfTime += selfTime;
+		current = current.parent;
+
+		if (--statistics.activations == 0) statistics.inclusiveTime += duration;
+
+		if (top > 0) callChildren[top - 1] += duration;
+	}
+
+	//////////////////////////////////////
+	/////////////// REPORTS //////////////
+	//////////////////////////////////////
+
+	private static double toMilliseconds(long nanoseconds)
+	{
+		return nanoseconds / NANOSECONDS_PER_MILLISECOND;
+	}
+
+	private static double toPercentage(long part, long total)
+	{
+		return total == 0 ? 0 : 100.0 * part / total;
+	}
+
+	/**
+	 * Prints lines and methods with the most self time
+	 */
+	public void printHotspots(PrintStream output, int count)
+	{
+		long total = 0;
+		List<Integer> lines = new ArrayList<>();
+
+		for (int line = 0; line < executions.length; line++)
+		{
+			if (executions[line] == 0) continue;
+
+			total += selfTimes[line];
+			lines.add(line);
+		}
+
+		lines.sort((first, second) -> Long.compare(selfTimes[second], selfTimes[first]));
+
+		output.println("Hot lines:");
+		output.printf("%8s %14s %12s %8s %12s%n", "Line", "Executions", "Self ms", "Self %", "Total ms");
+
+		for (int line : lines.subList(0, Math.min(count, lines.size())))
+		{
+			output.printf("%8d %14d %12.3f %7.2f%% %12.3f%n",
+						  line,
+						  executions[line],
+						  toMilliseconds(selfTimes[line]),
+						  toPercentage(selfTimes[line], total),
+						  toMilliseconds(inclusiveTimes[line]));
+		}
+
+		List<MethodStatistics> called = new ArrayList<>();
+
+		for (MethodStatistics statistics : methods.values())
+		{
+			if (statistics.calls > 0) called.add(statistics);
+		}
+
+		called.sort((first, second) -> Long.compare(second.selfTime, first.selfTime));
+
+		output.println();
+		output.println("Hot methods:");
+		output.printf("%-24s %14s %12s %8s %12s%n", "Method", "Calls", "Self ms", "Self %", "Total ms");
+
+		for (MethodStatistics statistics : called.subList(0, Math.min(count, called.size())))
+		{
+			output.printf("%-24s %14d %12.3f %7.2f%% %12.3f%n",
+						  statistics.name,
+						  statistics.calls,
+						  toMilliseconds(statistics.selfTime),
+						  toPercentage(statistics.selfTime, total),
+						  toMilliseconds(statistics.inclusiveTime));
+		}
+	}
+
+	/**
+	 * Writes self time of every distinct stack of methods in
+	 * microseconds, one 'outer;inner value' line per stack, the
+	 * format flamegraph tools expect as their input
+	 */
+	public void writeCollapsedStacks(String fileName) throws IOException
+	{
+		try (PrintWriter writer = new PrintWriter(new FileWriter(fileName)))
+		{
+			Deque<CallNode> nodes = new ArrayDeque<>(root.children.values());
+
+			while (!nodes.isEmpty())
+			{
+				CallNode node = nodes.pop();
+				nodes.addAll(node.children.values());
+
+				long microseconds = node.selfTime / 1000;
+
+				if (microseconds == 0) continue;
+
+				StringBuilder stack = new StringBuilder(node.name);
+
+				for (CallNode parent = node.parent; parent != root; parent = parent.parent)
+				{
+					stack.insert(0, ';').insert(0, parent.name);
+				}
+
+				writer.println(stack + " " + microseconds);
+			}
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package interpreter.profiler;
+
+import interpreter.ir.Statement;
+import interpreter.runtime.MethodNames;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Periodically takes snapshots of the shadow stack kept by the
+ * interpreter from a background thread, interpreter itself only
+ * updates the shadow stack so the overhead does not depend on how
+ * often samples are taken
+ *
+ * Frames are identified by a method and a line in it, statements
+ * executed outside of any method are not part of sampled stacks
+ */
+public class SamplingProfiler implements Runnable
+{
+	/**
+	 * Time between two samples in microseconds
+	 */
+	public static final long DEFAULT_INTERVAL = 1000;
+
+	private final long interval;
+
+	private final ShadowStack stack = new ShadowStack();
+
+	private final Map<Statement.Method, String> names = new IdentityHashMap<>();
+
+	/**
+	 * Collapsed stack - number of samples, owned by the sampling
+	 * thread until it is stopped
+	 */
+	private final Map<String, Long> stacks = new HashMap<>();
+	private final Map<String, Long> selfSamples = new HashMap<>();
+	private final Map<String, Long> totalSamples = new HashMap<>();
+	private long samples;
+
+	private Statement.Method[] methods = new Statement.Method[256];
+	private int[] lines = new int[256];
+
+	private volatile boolean running;
+	private Thread thread;
+
+	public SamplingProfiler(long interval)
+	{
+		this.interval = interval;
+	}
+
+	public ShadowStack getStack()
+	{
+		return stack;
+	}
+
+	public void start(Statement.Program program)
+	{
+		names.putAll(MethodNames.of(program));
+
+		running = true;
+
+		thread = new Thread(this, "MicroJava sampler");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public void stop()
+	{
+		running = false;
+		thread.interrupt();
+
+		try
+		{
+			thread.join();
+		}
+		catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void run()
+	{
+		long period = interval * 1000;
+
+		while (running)
+		{
+			LockSupport.parkNanos(period);
+
+			if (running) sample();
+		}
+	}
+
+	private String getName(Statement.Method method)
+	{
+		return names.computeIfAbsent(method, key -> key.name);
+	}
+
+	private void sample()
+	{
+		int count;
+
+		while ((count = stack.snapshot(methods, lines)) < 0)
+		{
+			methods = new Statement.Method[methods.length * 2];
+			lines = new int[lines.length * 2];
+		}
+
+		samples++;
+
+		if (count < 2) return;
+
+		StringBuilder collapsed = new StringBuilder();
+		Set<String> sampled = new HashSet<>();
+
+		for (int i = 1; i < count; i++)
+		{
+			String name = getName(methods[i]);
+
+			if (i > 1) collapsed.append(';');
+			collapsed.append(name).append(':').append(lines[i]);
+
+			if (sampled.add(name)) totalSamples.merge(name, 1L, Long::sum);
+		}
+
+		selfSamples.merge(getName(methods[count - 1]) + ":" + lines[count - 1], 1L, Long::sum);
+		stacks.merge(collapsed.toString(), 1L, Long::sum);
+	}
+
+	//////////////////////////////////////
+	/////////////// REPORTS //////////////
+	//////////////////////////////////////
+
+	private static List<Map.Entry<String, Long>> sortedBySamples(Map<String, Long> counts, int count)
+	{
+		List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+		entries.sort((first, second) -> Long.compare(second.getValue(), first.getValue()));
+
+		return entries.subList(0, Math.min(count, entries.size()));
+	}
+
+	private double toPercentage(long part)
+	{
+		return samples == 0 ? 0 : 100.0 * part / samples;
+	}
+
+	/**
+	 * Prints lines which were most often on top of the stack
+	 * and methods which were most often anywhere on the stack
+	 */
+	public void printHotspots(PrintStream output, int count)
+	{
+		output.println("Samples: " + samples + ", one every " + interval + " microseconds");
+		output.println();
+
+		output.println("Hot lines:");
+		output.printf("%-32s %10s %8s%n", "Method:Line", "Samples", "Self %");
+
+		for (Map.Entry<String, Long> entry : sortedBySamples(selfSamples, count))
+		{
+			output.printf("%-32s %10d %7.2f%%%n", entry.getKey(), entry.getValue(), toPercentage(entry.getValue()));
+		}
+
+		output.println();
+		output.println("Hot methods:");
+		output.printf("%-32s %10s %8s%n", "Method", "Samples", "Total %");
+
+		for (Map.Entry<String, Long> entry : sortedBySamples(totalSamples, count))
+		{
+			output.printf("%-32s %10d %7.2f%%%n", entry.getKey(), entry.getValue(), toPercentage(entry.getValue()));
+		}
+	}
+
+	/**
+	 * Writes number of samples of every distinct stack, one
+	 * 'outer;inner count' line per stack, frames are 'method:line'
+	 */
+	public void writeCollapsedStacks(String fileName) throws IOException
+	{
+		try (PrintWriter writer = new PrintWriter(new FileWriter(fileName)))
+		{
+			for (Map.Entry<String, Long> entry : stacks.entrySet())
+			{
+				writer.println(entry.getKey() + " " + entry.getValue());
+			}
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package interpreter.profiler;
+
+import interpreter.ir.Statement;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stack of methods being executed and of the line each of them is
+ * currently at, written only by the interpreter thread and read by
+ * a sampling thread without any locking
+ *
+ * Depth is published with release semantics after a frame is filled
+ * in, readers may see a line which is slightly out of date which is
+ * all a statistical profile needs. Frame at the bottom stands for
+ * statements executed outside of any method
+ *
+ * Lines are only updated at calls and loop iterations instead of on
+ * every statement, a frame is at the line of the call it made, of
+ * the loop it is iterating or of its method, whichever came last
+ */
+public class ShadowStack
+{
+	private static final int INITIAL_CAPACITY = 256;
+
+	private static final class Frames
+	{
+		public final Statement.Method[] methods;
+		public final int[] lines;
+
+		public Frames(int capacity)
+		{
+			methods = new Statement.Method[capacity];
+			lines = new int[capacity];
+		}
+	}
+
+	/**
+	 * Frames and depth as seen by readers
+	 */
+	private volatile Frames frames = new Frames(INITIAL_CAPACITY);
+	private final AtomicInteger depth = new AtomicInteger(1);
+
+	/**
+	 * Same frames and depth as seen by the interpreter thread,
+	 * kept in plain fields so updating a line costs a single store
+	 */
+	private Frames current = frames;
+	private int top = 1;
+
+	/**
+	 * Moves the calling frame to the line of the call
+	 * and pushes the frame of the called method
+	 */
+	public void push(Statement.Method method, int callLine)
+	{
+		current.lines[top - 1] = callLine;
+
+		if (top == current.methods.length)
+		{
+			Frames grown = new Frames(top * 2);
+
+			System.arraycopy(current.methods, 0, grown.methods, 0, top);
+			System.arraycopy(current.lines, 0, grown.lines, 0, top);
+
+			frames = current = grown;
+		}
+
+		current.methods[top] = method;
+		current.lines[top] = method.line;
+
+		depth.setRelease(++top);
+	}
+
+	public void pop()
+	{
+		depth.setRelease(--top);
+	}
+
+	public void setLine(int line)
+	{
+		current.lines[top - 1] = line;
+	}
+
+	/**
+	 * Copies frames into the given arrays, bottom frame first,
+	 * returns number of copied frames or -1 if the arrays are
+	 * too small to hold the whole stack
+	 */
+	public int snapshot(Statement.Method[] methods, int[] lines)
+	{
+		int count = depth.getAcquire();
+		Frames frames = this.frames;
+
+		// stack may have just grown, frames above the end of
+		// older arrays can not be read from them consistently
+		count = Math.min(count, frames.methods.length);
+
+		if (count > methods.length) return -1;
+
+		System.arraycopy(frames.methods, 0, methods, 0, count);
+		System.arraycopy(frames.lines, 0, lines, 0, count);
+
+		return count;
+	}
+
+	public int getDepth()
+	{
+		return depth.getAcquire();
+	}
+}
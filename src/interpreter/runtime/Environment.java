@@ -2,11 +2,16 @@ package interpreter.runtime;
 
 import interpreter.Interpreter;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.BiFunction;
 
 public class Environment
 {
+	private static final BiFunction<String, Object, Object> INCREMENT = (name, value) -> (int) value + 1;
+	private static final BiFunction<String, Object, Object> DECREMENT = (name, value) -> (int) value - 1;
+
 	private final Environment outer;
 
 	private final Map<String, Object> values = new LinkedHashMap<>();
@@ -21,6 +26,14 @@ public class Environment
 		this.outer = outer;
 	}
 
+	/**
+	 * Variables defined directly in this environment, in order of definition
+	 */
+	public Map<String, Object> getValues()
+	{
+		return Collections.unmodifiableMap(values);
+	}
+
 	public Object get(String name)
 	{
 		if (values.containsKey(name))
@@ -54,6 +67,7 @@ public class Environment
 		if (values.containsKey(name))
 		{
 			values.replace(name, value);
+			return;
 		}
 		else if (values.containsKey(Interpreter.THIS))
 		{
@@ -66,4 +80,37 @@ public class Environment
 			outer.assign(name, value);
 		}
 	}
+
+	public void increment(String name)
+	{
+		update(name, INCREMENT);
+	}
+
+	public void decrement(String name)
+	{
+		update(name, DECREMENT);
+	}
+
+	/**
+	 * Updates variable in the map entry which holds it,
+	 * resolving it the same way get and assign do
+	 */
+	private void update(String name, BiFunction<String, Object, Object> function)
+	{
+		for (Environment environment = this; environment != null; environment = environment.outer)
+		{
+			if (environment.values.computeIfPresent(name, function) != null) return;
+
+			// variable which was never assigned, fails the same way reading it does
+			if (environment.values.containsKey(name))
+			{
+				environment.values.put(name, function.apply(name, null));
+				return;
+			}
+
+			RuntimeInstance instance = (RuntimeInstance) environment.values.get(Interpreter.THIS);
+
+			if (instance != null && instance.update(name, function)) return;
+		}
+	}
 }
@@ -0,0 +1,130 @@
+package interpreter.runtime;
+
+/**
+ * Limits number of steps, wall time and allocated bytes of a single
+ * run, a step is an iteration of a loop or an entry to a method body
+ * so every way of running forever passes through a checkpoint
+ *
+ * Checkpoints only count steps, the clock, interruption and the
+ * scheduler are consulted once every CLOCK_INTERVAL steps
+ *
+ * Allocations of arrays and instances are charged with their estimated
+ * size, boxes their elements and fields may hold included, before they
+ * are made and never refunded, the quota bounds the heap those take no
+ * matter how much of it is still reachable. Locals of method calls are
+ * not charged, their number is bounded by the depth of the call stack
+ */
+public class ExecutionBudget
+{
+	public static final long UNLIMITED = Long.MAX_VALUE;
+
+	private static final int CLOCK_INTERVAL = 1 << 10;
+
+	private final long maximalSteps;
+
+	/**
+	 * First step over the budget, the last allowed step is still taken
+	 */
+	private final long exceedingStep;
+	private final long timeout;
+	private final long maximalBytes;
+
+	private long steps;
+	private long nextCheck;
+	private long deadline;
+	private long bytes;
+
+	/**
+	 * Scheduler the run is sharing processors through, null when not scheduled
+	 */
+	private ExecutionScheduler scheduler;
+	private long sliceEnd;
+
+	/**
+	 * Timeout is in milliseconds, UNLIMITED turns off a limit
+	 */
+	public ExecutionBudget(long maximalSteps, long timeout, long maximalBytes)
+	{
+		this.maximalSteps = maximalSteps;
+		this.exceedingStep = maximalSteps == UNLIMITED ? UNLIMITED : maximalSteps + 1;
+		this.timeout = timeout;
+		this.maximalBytes = maximalBytes;
+	}
+
+	public void setScheduler(ExecutionScheduler scheduler)
+	{
+		this.scheduler = scheduler;
+	}
+
+	public long getSteps()
+	{
+		return steps;
+	}
+
+	public long getBytes()
+	{
+		return bytes;
+	}
+
+	/**
+	 * Starts counting steps and time of a new run
+	 */
+	public void start()
+	{
+		long now = System.nanoTime();
+
+		steps = 0;
+		bytes = 0;
+		nextCheck = Math.min(CLOCK_INTERVAL, exceedingStep);
+		deadline = timeout == UNLIMITED ? UNLIMITED : now + timeout * 1_000_000;
+
+		if (scheduler != null) sliceEnd = now + scheduler.getSlice();
+	}
+
+	public void checkpoint(int line)
+	{
+		if (++steps >= nextCheck) check(line);
+	}
+
+	/**
+	 * Charges an allocation of the given size, fails before
+	 * the run takes more than its quota
+	 */
+	public void allocate(int line, long size)
+	{
+		if (size > maximalBytes - bytes)
+		{
+			throw new ExecutionLimitException(line, "Heap quota of " + maximalBytes + " bytes exceeded!");
+		}
+
+		bytes += size;
+	}
+
+	private void check(int line)
+	{
+		if (steps >= exceedingStep)
+		{
+			throw new ExecutionLimitException(line, "Step budget of " + maximalSteps + " exceeded!");
+		}
+
+		nextCheck = Math.min(steps + CLOCK_INTERVAL, exceedingStep);
+
+		if (Thread.interrupted())
+		{
+			throw new ExecutionLimitException(line, "Execution interrupted!");
+		}
+
+		long now = System.nanoTime();
+
+		if (deadline != UNLIMITED && now - deadline >= 0)
+		{
+			throw new ExecutionLimitException(line, "Time limit of " + timeout + " ms exceeded!");
+		}
+
+		if (scheduler != null && now - sliceEnd >= 0)
+		{
+			scheduler.pass();
+			sliceEnd = System.nanoTime() + scheduler.getSlice();
+		}
+	}
+}
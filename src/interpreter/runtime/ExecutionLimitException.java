@@ -0,0 +1,13 @@
+package interpreter.runtime;
+
+/**
+ * Thrown when a program runs out of its step budget or time,
+ * or when the thread running it is interrupted
+ */
+public class ExecutionLimitException extends InterpretingException
+{
+	public ExecutionLimitException(int line, String message)
+	{
+		super(line, message);
+	}
+}
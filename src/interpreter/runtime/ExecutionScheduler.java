@@ -0,0 +1,100 @@
+package interpreter.runtime;
+
+import interpreter.Interpreter;
+import interpreter.ir.Statement;
+
+import java.util.concurrent.*;
+
+/**
+ * Runs many programs while letting only a fixed number of them
+ * execute at once, a running program gives its processor to a
+ * waiting one at a checkpoint once its time slice is used up
+ *
+ * Each program gets its own thread since interpreted calls live
+ * on the Java stack, waiting threads are parked and cost no processor
+ * time. Programs without a budget get an unlimited one so they
+ * still take turns
+ */
+public class ExecutionScheduler implements AutoCloseable
+{
+	/**
+	 * Time slice in milliseconds
+	 */
+	public static final long DEFAULT_SLICE = 10;
+
+	private final Semaphore processors;
+	private final long slice;
+
+	private final ExecutorService threads = Executors.newCachedThreadPool(runnable ->
+	{
+		Thread thread = new Thread(runnable, "MicroJava program");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	public ExecutionScheduler(int parallelism, long slice)
+	{
+		this.processors = new Semaphore(parallelism, true);
+		this.slice = slice * 1_000_000;
+	}
+
+	public ExecutionScheduler()
+	{
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_SLICE);
+	}
+
+	/**
+	 * Time slice in nanoseconds
+	 */
+	public long getSlice()
+	{
+		return slice;
+	}
+
+	/**
+	 * Interprets the program once a processor is free, cancelling
+	 * the returned future interrupts the program at its next check
+	 */
+	public Future<?> submit(Interpreter interpreter, Statement.Program program)
+	{
+		if (interpreter.getBudget() == null)
+		{
+			interpreter.setBudget(new ExecutionBudget(ExecutionBudget.UNLIMITED, ExecutionBudget.UNLIMITED, ExecutionBudget.UNLIMITED));
+		}
+
+		interpreter.getBudget().setScheduler(this);
+
+		return threads.submit(() ->
+		{
+			processors.acquire();
+
+			try
+			{
+				interpreter.interpret(program);
+			}
+			finally
+			{
+				processors.release();
+			}
+
+			return null;
+		});
+	}
+
+	/**
+	 * Gives the processor to the longest waiting program, if any
+	 */
+	void pass()
+	{
+		if (!processors.hasQueuedThreads()) return;
+
+		processors.release();
+		processors.acquireUninterruptibly();
+	}
+
+	@Override
+	public void close()
+	{
+		threads.shutdownNow();
+	}
+}
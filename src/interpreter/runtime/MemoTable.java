@@ -0,0 +1,100 @@
+package interpreter.runtime;
+
+/**
+ * Bounded open addressing hash table from primitive
+ * keys to integer values, once full it keeps serving
+ * lookups but accepts no new entries
+ */
+public class MemoTable
+{
+	private final long[] keys;
+	private final int[] values;
+	private final boolean[] used;
+
+	private final int mask;
+	private final int limit;
+
+	private int size;
+
+	private long hits;
+	private long misses;
+
+	public MemoTable(int limit)
+	{
+		int capacity = Integer.highestOneBit(Math.max(limit, 1) * 2 - 1) << 1;
+
+		this.keys = new long[capacity];
+		this.values = new int[capacity];
+		this.used = new boolean[capacity];
+
+		this.mask = capacity - 1;
+		this.limit = limit;
+	}
+
+	private int slot(long key)
+	{
+		long hash = key * 0x9E3779B97F4A7C15L;
+		int index = (int) (hash ^ (hash >>> 32)) & mask;
+
+		while (used[index] && keys[index] != key)
+		{
+			index = (index + 1) & mask;
+		}
+
+		return index;
+	}
+
+	/**
+	 * Index of the entry holding the key or a negative value on a miss
+	 */
+	public int find(long key)
+	{
+		int index = slot(key);
+
+		if (used[index])
+		{
+			hits++;
+			return index;
+		}
+
+		misses++;
+		return -1;
+	}
+
+	public int get(int index)
+	{
+		return values[index];
+	}
+
+	public void put(long key, int value)
+	{
+		int index = slot(key);
+
+		if (used[index])
+		{
+			values[index] = value;
+		}
+		else if (size < limit)
+		{
+			used[index] = true;
+			keys[index] = key;
+			values[index] = value;
+			size++;
+		}
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public long getHits()
+	{
+		return hits;
+	}
+
+	public long getMisses()
+	{
+		return misses;
+	}
+}
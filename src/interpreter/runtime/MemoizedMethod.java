@@ -0,0 +1,68 @@
+package interpreter.runtime;
+
+import interpreter.Interpreter;
+
+import java.util.List;
+
+/**
+ * Caches results of a pure method called with at most two
+ * integer arguments, other calls go straight to the method
+ */
+public class MemoizedMethod implements RuntimeCallable
+{
+	private static final int MAXIMAL_ARITY = 2;
+
+	private final String name;
+	private final RuntimeMethod method;
+	private final MemoTable table;
+
+	public MemoizedMethod(String name, RuntimeMethod method, int limit)
+	{
+		this.name = name;
+		this.method = method;
+		this.table = new MemoTable(limit);
+	}
+
+	@Override
+	public Object call(Interpreter interpreter, List<Object> arguments)
+	{
+		if (arguments.size() > MAXIMAL_ARITY) return method.call(interpreter, arguments);
+
+		long key = 0;
+
+		for (Object argument : arguments)
+		{
+			if (!(argument instanceof Integer)) return method.call(interpreter, arguments);
+
+			key = (key << 32) | ((int) argument & 0xFFFFFFFFL);
+		}
+
+		int index = table.find(key);
+
+		if (index >= 0) return table.get(index);
+
+		Object result = method.call(interpreter, arguments);
+
+		if (result instanceof Integer)
+		{
+			table.put(key, (int) result);
+		}
+
+		return result;
+	}
+
+	public RuntimeMethod getMethod()
+	{
+		return method;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public MemoTable getTable()
+	{
+		return table;
+	}
+}
@@ -0,0 +1,43 @@
+package interpreter.runtime;
+
+import interpreter.ir.Statement;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Names methods of a program for reports, methods of classes
+ * are qualified by the class they are declared in
+ */
+public final class MethodNames
+{
+	private MethodNames()
+	{
+
+	}
+
+	public static Map<Statement.Method, String> of(Statement.Program program)
+	{
+		Map<Statement.Method, String> names = new IdentityHashMap<>();
+
+		for (Statement statement : program.statements)
+		{
+			if (statement instanceof Statement.Class)
+			{
+				Statement.Class declaration = (Statement.Class) statement;
+
+				for (Statement.Method method : declaration.methods)
+				{
+					names.put(method, declaration.name + "." + method.name);
+				}
+			}
+			else if (statement instanceof Statement.Method)
+			{
+				Statement.Method method = (Statement.Method) statement;
+				names.put(method, method.name);
+			}
+		}
+
+		return names;
+	}
+}
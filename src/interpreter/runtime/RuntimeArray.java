@@ -1,7 +1,21 @@
 package interpreter.runtime;
 
-public class RuntimeArray
+import java.io.Serializable;
+
+public class RuntimeArray implements Serializable
 {
+	/**
+	 * Object header and value array, every element adds a reference
+	 */
+	private static final long ARRAY_BYTES = 16 + 16;
+	private static final long ELEMENT_BYTES = 4;
+
+	/**
+	 * Integers and characters are stored boxed and only small ones are
+	 * cached, so every element of such an array may hold a box of its own
+	 */
+	static final long BOX_BYTES = 16;
+
 	private final Object[] values;
 
 	public RuntimeArray(int size)
@@ -9,6 +23,18 @@ public class RuntimeArray
 		values = new Object[size];
 	}
 
+	/**
+	 * Estimated size on a 64 bit virtual machine with compressed references,
+	 * including boxes the elements may hold, objects they refer to are not
+	 * included since they are charged when they are created
+	 */
+	public static long estimateSize(String elementType, int size)
+	{
+		boolean boxed = elementType.equals("int") || elementType.equals("char");
+
+		return ARRAY_BYTES + (boxed ? ELEMENT_BYTES + BOX_BYTES : ELEMENT_BYTES) * size;
+	}
+
 	public Object get(int index)
 	{
 		return values[index];
@@ -1,8 +1,9 @@
 package interpreter.runtime;
 
+import java.io.Serializable;
 import java.util.Map;
 
-public class RuntimeClass
+public class RuntimeClass implements Serializable
 {
 	private final String name;
 	private final RuntimeClass superClass;
@@ -29,6 +30,11 @@ public class RuntimeClass
 		return null;
 	}
 
+	public String getName()
+	{
+		return name;
+	}
+
 	public Map<String, Object> getFields()
 	{
 		return fields;
@@ -1,10 +1,19 @@
 package interpreter.runtime;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiFunction;
 
-public class RuntimeInstance
+public class RuntimeInstance implements Serializable
 {
+	/**
+	 * Object header, class reference and field map of an instance,
+	 * every field adds a map entry and a slot of its hash table
+	 */
+	private static final long INSTANCE_BYTES = 24 + 48 + 16;
+	private static final long FIELD_BYTES = 32 + 8;
+
 	private final RuntimeClass runtimeClass;
 	private final Map<String, Object> fields = new HashMap<>();
 
@@ -14,6 +23,26 @@ public class RuntimeInstance
 		fields.putAll(runtimeClass.getFields());
 	}
 
+	/**
+	 * Estimated size on a 64 bit virtual machine with compressed references,
+	 * including boxes integer and character fields may hold, objects the
+	 * fields refer to are not included since they are charged when they
+	 * are created
+	 */
+	public static long estimateSize(RuntimeClass runtimeClass)
+	{
+		long size = INSTANCE_BYTES;
+
+		for (Object initializer : runtimeClass.getFields().values())
+		{
+			boolean boxed = initializer instanceof Integer || initializer instanceof Character;
+
+			size += boxed ? FIELD_BYTES + RuntimeArray.BOX_BYTES : FIELD_BYTES;
+		}
+
+		return size;
+	}
+
 	public Object get(String member)
 	{
 		if (fields.containsKey(member)) return fields.get(member);
@@ -33,4 +62,13 @@ public class RuntimeInstance
 		}
 		return false;
 	}
+
+	public boolean update(String field, BiFunction<String, Object, Object> function)
+	{
+		if (fields.computeIfPresent(field, function) != null) return true;
+		if (!fields.containsKey(field)) return false;
+
+		fields.put(field, function.apply(field, null));
+		return true;
+	}
 }
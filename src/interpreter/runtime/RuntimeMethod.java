@@ -1,15 +1,20 @@
 package interpreter.runtime;
 
 import interpreter.Interpreter;
+import interpreter.events.MethodCallEvent;
 import interpreter.ir.Statement;
 
+import java.io.Serializable;
 import java.util.List;
 
-public class RuntimeMethod implements RuntimeCallable
+public class RuntimeMethod implements RuntimeCallable, Serializable
 {
 	private final Statement.Method method;
 
-	private RuntimeInstance thisInstance;
+	/**
+	 * Instance the method was last looked up on, bound again on every lookup
+	 */
+	private transient RuntimeInstance thisInstance;
 
 	public RuntimeMethod(Statement.Method method)
 	{
@@ -19,33 +24,98 @@ public class RuntimeMethod implements RuntimeCallable
 	@Override
 	public Object call(Interpreter interpreter, List<Object> arguments)
 	{
-		Environment environment = new Environment(interpreter.getEnvironment());
+		// allocation of a disabled event is optimized away
+		// together with the check, so it costs nothing
+		MethodCallEvent event = new MethodCallEvent();
 
-		if (thisInstance != null)
+		if (!event.isEnabled()) return instrument(interpreter, arguments);
+
+		event.begin();
+
+		try
 		{
-			environment.define(Interpreter.THIS, thisInstance);
+			return instrument(interpreter, arguments);
 		}
-
-		for (int i = 0; i < arguments.size(); i++)
+		finally
 		{
-			environment.define(method.parameters.get(i), arguments.get(i));
+			event.end();
+
+			if (event.shouldCommit())
+			{
+				event.method = method.name;
+				event.line = method.line;
+				event.commit();
+			}
 		}
+	}
+
+	private Object instrument(Interpreter interpreter, List<Object> arguments)
+	{
+		if (!interpreter.isInstrumented()) return execute(interpreter, arguments);
+
+		interpreter.enterMethod(method);
 
 		try
 		{
-			interpreter.execute(method.body, environment);
+			return execute(interpreter, arguments);
+		}
+		finally
+		{
+			interpreter.exitMethod();
+		}
+	}
+
+	private Object execute(Interpreter interpreter, List<Object> arguments)
+	{
+		Environment environment = new Environment(interpreter.getEnvironment());
+
+		if (interpreter.getMetrics() != null)
+		{
+			interpreter.getMetrics().recordEnvironment();
 		}
-		catch (Return aReturn)
+
+		if (thisInstance != null)
 		{
-			return aReturn.value;
+			environment.define(Interpreter.THIS, thisInstance);
 		}
 
-		if (!method.isVoid)
+		// self calls in tail position rerun the body in
+		// the same environment instead of nesting a call
+		while (true)
 		{
-			throw new InterpretingException(method.line, "Missing return statement in method '" + method.name + "'");
+			interpreter.checkpoint(method.line);
+
+			for (int i = 0; i < arguments.size(); i++)
+			{
+				environment.define(method.parameters.get(i), arguments.get(i));
+			}
+
+			try
+			{
+				interpreter.execute(method.body, environment);
+			}
+			catch (Return aReturn)
+			{
+				return aReturn.value;
+			}
+			catch (TailCall tailCall)
+			{
+				arguments = tailCall.arguments;
+				continue;
+			}
+
+			if (!method.isVoid)
+			{
+				throw new InterpretingException(method.line, "Missing return statement in method '" + method.name + "'");
+			}
+
+			return null;
 		}
+	}
 
-		return null;
+	public Statement.Method getDeclaration()
+	{
+		return method;
 	}
 
 	public void bind(RuntimeInstance instance)
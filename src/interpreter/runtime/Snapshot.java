@@ -0,0 +1,90 @@
+package interpreter.runtime;
+
+import interpreter.ir.Statement;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+
+/**
+ * Global environment of a program after its declarations were executed,
+ * kept together with the program so restoring needs no other file and
+ * runtime methods keep referring to the same statements as the program
+ */
+public class Snapshot implements Serializable
+{
+	private final Statement.Program program;
+	private final Map<String, Object> globals;
+
+	/**
+	 * Identity of the intermediate code file the program was read from
+	 */
+	private String source;
+
+	public Snapshot(Statement.Program program, Map<String, Object> globals)
+	{
+		this.program = program;
+		this.globals = globals;
+	}
+
+	public Statement.Program getProgram()
+	{
+		return program;
+	}
+
+	public Map<String, Object> getGlobals()
+	{
+		return globals;
+	}
+
+	public void setSource(String source)
+	{
+		this.source = source;
+	}
+
+	public boolean isTakenFrom(String source)
+	{
+		return source.equals(this.source);
+	}
+
+	/**
+	 * Digest of the contents of an intermediate code file, snapshots
+	 * can be shared between programs so modification times alone can
+	 * not tell which program a snapshot was taken from
+	 */
+	public static String identify(File file) throws IOException
+	{
+		try
+		{
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file.toPath()));
+
+			StringBuilder builder = new StringBuilder();
+
+			for (byte value : digest) builder.append(String.format("%02x", value));
+
+			return builder.toString();
+		}
+		catch (NoSuchAlgorithmException exception)
+		{
+			throw new IllegalStateException(exception);
+		}
+	}
+
+	public void write(String fileName) throws IOException
+	{
+		try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(fileName))))
+		{
+			output.writeObject(this);
+		}
+	}
+
+	public static Snapshot read(String fileName) throws IOException, ClassNotFoundException
+	{
+		try (ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(new FileInputStream(fileName))))
+		{
+			return (Snapshot) input.readObject();
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package interpreter.runtime;
+
+import java.util.List;
+
+/**
+ * Simulates a self call in tail position by unwinding
+ * to the running method which restarts its own body,
+ * no stack trace is recorded since it is never reported
+ */
+public class TailCall extends RuntimeException
+{
+	public final List<Object> arguments;
+
+	public TailCall(List<Object> arguments)
+	{
+		super(null, null, false, false);
+		this.arguments = arguments;
+	}
+}
@@ -0,0 +1,108 @@
+package interpreter.symbols;
+
+/**
+ * Interns identifiers straight from the buffer of the lexer, every
+ * occurrence of a name maps to the same String which is created only
+ * the first time the name is seen
+ *
+ * Symbol table seeds it with names it declares itself so identifiers
+ * in the source share instances with them, lookups of shared names
+ * succeed on the identity check and their hash codes are cached
+ */
+public class NameTable
+{
+	private static final int INITIAL_CAPACITY = 256;
+
+	private String[] names = new String[INITIAL_CAPACITY];
+	private int[] hashes = new int[INITIAL_CAPACITY];
+	private int size;
+
+	public String intern(char[] buffer, int start, int length)
+	{
+		int hash = 0;
+
+		for (int i = start; i < start + length; i++)
+		{
+			hash = 31 * hash + buffer[i];
+		}
+
+		int mask = names.length - 1;
+		int index = mix(hash) & mask;
+
+		for (String name; (name = names[index]) != null; index = (index + 1) & mask)
+		{
+			if (hashes[index] == hash && matches(name, buffer, start, length)) return name;
+		}
+
+		return insert(index, hash, new String(buffer, start, length));
+	}
+
+	public String intern(String name)
+	{
+		int hash = name.hashCode();
+		int mask = names.length - 1;
+		int index = mix(hash) & mask;
+
+		for (String existing; (existing = names[index]) != null; index = (index + 1) & mask)
+		{
+			if (hashes[index] == hash && existing.equals(name)) return existing;
+		}
+
+		return insert(index, hash, name);
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	private static int mix(int hash)
+	{
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean matches(String name, char[] buffer, int start, int length)
+	{
+		if (name.length() != length) return false;
+
+		for (int i = 0; i < length; i++)
+		{
+			if (name.charAt(i) != buffer[start + i]) return false;
+		}
+
+		return true;
+	}
+
+	private String insert(int index, int hash, String name)
+	{
+		names[index] = name;
+		hashes[index] = hash;
+
+		if (++size * 2 > names.length) grow();
+
+		return name;
+	}
+
+	private void grow()
+	{
+		String[] oldNames = names;
+		int[] oldHashes = hashes;
+
+		names = new String[oldNames.length * 2];
+		hashes = new int[oldNames.length * 2];
+
+		int mask = names.length - 1;
+
+		for (int i = 0; i < oldNames.length; i++)
+		{
+			if (oldNames[i] == null) continue;
+
+			int index = mix(oldHashes[i]) & mask;
+
+			while (names[index] != null) index = (index + 1) & mask;
+
+			names[index] = oldNames[i];
+			hashes[index] = oldHashes[i];
+		}
+	}
+}
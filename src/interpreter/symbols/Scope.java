@@ -1,7 +1,6 @@
 package interpreter.symbols;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.*;
 
 public class Scope
 {
@@ -9,6 +8,17 @@ public class Scope
 
 	private final Map<String, Symbol> symbols = new LinkedHashMap<>();
 
+	/**
+	 * Number of changes made to the scope, every symbol remembers the
+	 * change which added it and removed symbols the change which removed
+	 * them, so the scope can be looked at as it was at an earlier version
+	 */
+	private int version;
+
+	private final Map<Symbol, Integer> additions = new IdentityHashMap<>();
+	private Map<Symbol, Integer> removals;
+	private Map<String, List<Symbol>> removed;
+
 	public Scope(Scope outer)
 	{
 		this.outer = outer;
@@ -23,6 +33,7 @@ public class Scope
 		else
 		{
 			symbols.put(symbol.getName(), symbol);
+			additions.put(symbol, version++);
 			return true;
 		}
 	}
@@ -32,9 +43,45 @@ public class Scope
 		return symbols.get(symbolName);
 	}
 
+	/**
+	 * Symbol with the given name the scope had at the given version
+	 */
+	public Symbol findSymbol(String symbolName, int version)
+	{
+		Symbol symbol = symbols.get(symbolName);
+
+		if (symbol != null && additions.get(symbol) < version) return symbol;
+
+		if (removed == null) return null;
+
+		for (Symbol removedSymbol : removed.getOrDefault(symbolName, Collections.emptyList()))
+		{
+			if (additions.get(removedSymbol) < version && removals.get(removedSymbol) >= version)
+				return removedSymbol;
+		}
+
+		return null;
+	}
+
 	public void removeSymbol(String symbolName)
 	{
-		symbols.remove(symbolName);
+		Symbol symbol = symbols.remove(symbolName);
+
+		if (symbol == null) return;
+
+		if (removed == null)
+		{
+			removals = new IdentityHashMap<>();
+			removed = new HashMap<>();
+		}
+
+		removals.put(symbol, version++);
+		removed.computeIfAbsent(symbolName, name -> new ArrayList<>()).add(symbol);
+	}
+
+	public int getVersion()
+	{
+		return version;
 	}
 
 	public Scope getOuter()
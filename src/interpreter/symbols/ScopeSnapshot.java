@@ -0,0 +1,61 @@
+package interpreter.symbols;
+
+/**
+ * Read only view of the scopes which were open when it was taken,
+ * symbols added to them afterwards are not visible through it while
+ * symbols removed afterwards still are
+ *
+ * Lets a method body be analyzed after the whole symbol table is
+ * built, possibly on another thread, and still resolve every name
+ * to the symbol it would have resolved to right where the body is
+ */
+public class ScopeSnapshot
+{
+	private final Scope[] scopes;
+	private final int[] versions;
+
+	ScopeSnapshot(Scope innermost)
+	{
+		int count = 0;
+
+		for (Scope scope = innermost; scope != null; scope = scope.getOuter()) count++;
+
+		scopes = new Scope[count];
+		versions = new int[count];
+
+		count = 0;
+
+		for (Scope scope = innermost; scope != null; scope = scope.getOuter(), count++)
+		{
+			scopes[count] = scope;
+			versions[count] = scope.getVersion();
+		}
+	}
+
+	public Symbol find(String name)
+	{
+		for (int i = 0; i < scopes.length; i++)
+		{
+			Symbol symbol = scopes[i].findSymbol(name, versions[i]);
+			if (symbol != null) return symbol;
+		}
+
+		return SymbolTable.NO_SYMBOL;
+	}
+
+	/**
+	 * Member of the given class type or null if there is no such
+	 * member, class being declared when the snapshot was taken
+	 * only has the members it had at that point
+	 */
+	public Symbol findMember(Type type, String name)
+	{
+		for (int i = 0; i < scopes.length; i++)
+		{
+			if (scopes[i].getSymbols() == type.getMembers())
+				return scopes[i].findSymbol(name, versions[i]);
+		}
+
+		return type.getMembers().get(name);
+	}
+}
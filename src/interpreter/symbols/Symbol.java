@@ -30,6 +30,13 @@ public class Symbol
 	 */
 	private Map<String, Symbol> locals;
 
+	/**
+	 * METHOD   - parameters in order, indexed once locals are chained
+	 */
+	private Symbol[] parameters = NO_PARAMETERS;
+
+	private static final Symbol[] NO_PARAMETERS = new Symbol[0];
+
 	public Symbol(int kind, String name, Type type)
 	{
 		this.kind = kind;
@@ -102,6 +109,33 @@ public class Symbol
 	public void setLocals(Map<String, Symbol> locals)
 	{
 		this.locals = locals;
+
+		if (kind == METHOD) indexParameters();
+	}
+
+	/**
+	 * Parameter with the given ordinal, starting from one, or null
+	 * if there is none, parameters have to be declared before
+	 * locals of the method are chained
+	 */
+	public Symbol getFormalParameter(int index)
+	{
+		return index > 0 && index <= parameters.length ? parameters[index - 1] : null;
+	}
+
+	private void indexParameters()
+	{
+		int count = 0;
+
+		for (Symbol local : locals.values()) count = Math.max(count, local.parameter);
+
+		parameters = count == 0 ? NO_PARAMETERS : new Symbol[count];
+
+		for (Symbol local : locals.values())
+		{
+			if (local.parameter > 0 && parameters[local.parameter - 1] == null)
+				parameters[local.parameter - 1] = local;
+		}
 	}
 
 	@Override
@@ -1,5 +1,7 @@
 package interpreter.symbols;
 
+import java.io.PrintWriter;
+import java.io.Writer;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Stack;
@@ -29,6 +31,10 @@ public class SymbolTable
 	private final Map<String, Type> classTypes = new LinkedHashMap<>();
 	private final Map<String, Type> abstractClassTypes = new LinkedHashMap<>();
 
+	private final NameTable names = new NameTable();
+
+	private int classCount;
+
 	public SymbolTable()
 	{
 		currentScope.addSymbol(new Symbol(Symbol.TYPE, "int", INT_TYPE));
@@ -65,6 +71,17 @@ public class SymbolTable
 		}
 
 		scopeStack.push(universe.getSymbols());
+
+		for (String name : universe.getSymbols().keySet()) names.intern(name);
+		names.intern(ENTRY_POINT);
+	}
+
+	/**
+	 * Table lexer interns identifiers through, seeded with predeclared names
+	 */
+	public NameTable getNames()
+	{
+		return names;
 	}
 
 	public void openScope()
@@ -129,6 +146,15 @@ public class SymbolTable
 		currentScope.removeSymbol(name);
 	}
 
+	/**
+	 * View of the scopes as they are now, which stays the
+	 * same while declarations are added to the table
+	 */
+	public ScopeSnapshot snapshot()
+	{
+		return new ScopeSnapshot(currentScope);
+	}
+
 	public void enterScope(String name)
 	{
 		Symbol symbol = scopeStack.peek().get(name);
@@ -161,7 +187,11 @@ public class SymbolTable
 		return NO_SYMBOL;
 	}
 
-	public Type getArrayType(Type elementType)
+	/**
+	 * Array types are still created while method bodies are analyzed
+	 * in parallel, so they are created and named under the table's lock
+	 */
+	public synchronized Type getArrayType(Type elementType)
 	{
 		if (arrayTypes.containsKey(elementType))
 		{
@@ -170,6 +200,7 @@ public class SymbolTable
 		else
 		{
 			Type type = new Type(Type.ARRAY, elementType);
+			type.setName("array of " + getTypeName(elementType));
 			arrayTypes.put(elementType, type);
 			return type;
 		}
@@ -184,6 +215,8 @@ public class SymbolTable
 		else
 		{
 			Type type = new Type(Type.CLASS);
+			type.setName("class " + className);
+			type.setId(classCount++);
 			classTypes.put(className, type);
 			return type;
 		}
@@ -198,6 +231,8 @@ public class SymbolTable
 		else
 		{
 			Type type = new Type(Type.ABSTRACT_CLASS);
+			type.setName("abstract class " + abstractClassName);
+			type.setId(classCount++);
 			abstractClassTypes.put(abstractClassName, type);
 			return type;
 		}
@@ -215,6 +250,10 @@ public class SymbolTable
 		return NO_TYPE;
 	}
 
+	/**
+	 * Types created by the table carry their names, those
+	 * created elsewhere, like the type of 'null', do not
+	 */
 	public String getTypeName(Type type)
 	{
 		switch (type.getKind())
@@ -226,26 +265,11 @@ public class SymbolTable
 		case Type.BOOL:
 			return "bool";
 		case Type.ARRAY:
-			for (Map.Entry<Type, Type> entry : arrayTypes.entrySet())
-			{
-				if (entry.getValue() == type)
-					return "array of " + getTypeName(entry.getKey());
-			}
-			return "array of no_type";
+			return type.getName() == null ? "array of no_type" : type.getName();
 		case Type.CLASS:
-			for (Map.Entry<String, Type> entry : classTypes.entrySet())
-			{
-				if (entry.getValue() == type)
-					return "class " + entry.getKey();
-			}
-			return "class";
+			return type.getName() == null ? "class" : type.getName();
 		case Type.ABSTRACT_CLASS:
-			for (Map.Entry<String, Type> entry : abstractClassTypes.entrySet())
-			{
-				if (entry.getValue() == type)
-					return "abstract class " + entry.getKey();
-			}
-			return "abstract class";
+			return type.getName() == null ? "abstract class" : type.getName();
 		default:
 			return "no_type";
 		}
@@ -253,22 +277,30 @@ public class SymbolTable
 
 	public Symbol getFormalParameter(Symbol method, int index)
 	{
-		for (Symbol symbol : method.getLocals().values())
-		{
-			if (symbol.getParameter() == index)
-				return symbol;
-		}
-		return NO_SYMBOL;
+		Symbol parameter = method.getFormalParameter(index);
+		return parameter == null ? NO_SYMBOL : parameter;
 	}
 
 	public void dump()
 	{
-		System.out.println("=========================== Symbol Table ============================");
+		dump(new PrintWriter(System.out));
+	}
+
+	/**
+	 * Writes every scope, innermost first, flushes the writer
+	 * but leaves it open
+	 */
+	public void dump(Writer output)
+	{
+		PrintWriter writer = output instanceof PrintWriter ? (PrintWriter) output : new PrintWriter(output);
+		SymbolTableVisitor visitor = new SymbolTableVisitor(this, writer);
 
-		SymbolTableVisitor visitor = new SymbolTableVisitor(this);
+		writer.println("=========================== Symbol Table ============================");
+		writer.println();
 
 		for (Scope scope = currentScope; scope != null; scope = scope.getOuter()) scope.accept(visitor);
 
-		System.out.println(System.lineSeparator() + visitor.getOutput());
+		writer.println();
+		writer.flush();
 	}
 }
@@ -1,17 +1,25 @@
 package interpreter.symbols;
 
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * Writes symbols to the given writer as they are visited
+ * instead of building the whole dump in memory first
+ */
 public class SymbolTableVisitor
 {
 	private final SymbolTable symbolTable;
 
-	private final StringBuilder output = new StringBuilder();
+	private final PrintWriter output;
 
 	private final String indentation = "\t";
 	private final StringBuilder currentIndentation = new StringBuilder();
 
-	public SymbolTableVisitor(SymbolTable symbolTable)
+	public SymbolTableVisitor(SymbolTable symbolTable, Writer output)
 	{
 		this.symbolTable = symbolTable;
+		this.output = output instanceof PrintWriter ? (PrintWriter) output : new PrintWriter(output);
 	}
 
 	private void nextIndentationLevel()
@@ -63,7 +71,7 @@ public class SymbolTableVisitor
 		if (symbol.getKind() == Symbol.CONSTANT)
 		{
 			output.append(", ");
-			output.append(symbol.getName().equals("eol") ? "\\r\\n" : symbol.getValue());
+			output.print(symbol.getName().equals("eol") ? "\\r\\n" : symbol.getValue());
 		}
 
 		if (symbol.getKind() == Symbol.PROGRAM || symbol.getKind() == Symbol.METHOD)
@@ -72,7 +80,7 @@ public class SymbolTableVisitor
 
 			for (Symbol localSymbol : symbol.getLocals().values())
 			{
-				output.append(System.lineSeparator()).append(currentIndentation.toString());
+				output.append(System.lineSeparator()).append(currentIndentation);
 				localSymbol.accept(this);
 			}
 
@@ -124,22 +132,22 @@ public class SymbolTableVisitor
 			nextIndentationLevel();
 			for (Symbol symbol : type.getMembersCollection())
 			{
-				output.append(System.lineSeparator()).append(currentIndentation.toString());
+				output.append(System.lineSeparator()).append(currentIndentation);
 				symbol.accept(this);
 			}
 			previousIndentationLevel();
-			output.append(System.lineSeparator()).append(currentIndentation.toString()).append("]");
+			output.append(System.lineSeparator()).append(currentIndentation).append("]");
 			break;
 		case Type.ABSTRACT_CLASS:
 			output.append("abstract class [");
 			nextIndentationLevel();
 			for (Symbol symbol : type.getMembersCollection())
 			{
-				output.append(System.lineSeparator()).append(currentIndentation.toString());
+				output.append(System.lineSeparator()).append(currentIndentation);
 				symbol.accept(this);
 			}
 			previousIndentationLevel();
-			output.append(System.lineSeparator()).append(currentIndentation.toString()).append("]");
+			output.append(System.lineSeparator()).append(currentIndentation).append("]");
 			break;
 		}
 	}
@@ -152,9 +160,4 @@ public class SymbolTableVisitor
 			output.append(System.lineSeparator());
 		}
 	}
-
-	public String getOutput()
-	{
-		return output.toString();
-	}
 }
@@ -1,5 +1,6 @@
 package interpreter.symbols;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
@@ -29,6 +30,18 @@ public class Type
 	 */
 	private Map<String, Symbol> members;
 
+	/**
+	 * Name given by the symbol table which created the type
+	 */
+	private String name;
+
+	/**
+	 * CLASS - identifiers of the class and all of its ancestors
+	 * ABSTRACT CLASS - identifiers of the class and all of its ancestors
+	 */
+	private int id = -1;
+	private BitSet ancestors;
+
 	public Type(int kind)
 	{
 		this.kind = kind;
@@ -59,6 +72,38 @@ public class Type
 	public void setParentType(Type parentType)
 	{
 		this.parentType = parentType;
+
+		if (id >= 0 && parentType != null && parentType.ancestors != null)
+		{
+			ancestors = (BitSet) parentType.ancestors.clone();
+			ancestors.set(id);
+		}
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	void setName(String name)
+	{
+		this.name = name;
+	}
+
+	void setId(int id)
+	{
+		this.id = id;
+
+		ancestors = new BitSet();
+		ancestors.set(id);
+	}
+
+	/**
+	 * Whether this is the given class or extends it, directly or not
+	 */
+	public boolean isSubtypeOf(Type type)
+	{
+		return ancestors != null && type.id >= 0 && ancestors.get(type.id);
 	}
 
 	public Map<String, Symbol> getMembers()
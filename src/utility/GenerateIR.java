@@ -53,7 +53,8 @@ public class GenerateIR
 					"Print       : Expression expression, Integer width",
 					"Program     : List<Statement> statements",
 					"Read        : Declaration.Type type, Expression destination",
-					"Return      : Expression value"
+					"Return      : Expression value",
+					"TailCall    : List<Expression> arguments"
 			));
 		}
 		catch (IOException exception)
@@ -135,6 +136,9 @@ public class GenerateIR
 			writer.println("\t\t\tMULTIPLICATION,");
 			writer.println("\t\t\tDIVISION,");
 			writer.println("\t\t\tMODULUS,");
+			writer.println("\t\t\tSHIFT_LEFT,");
+			writer.println("\t\t\tSHIFT_RIGHT,");
+			writer.println("\t\t\tBITWISE_AND,");
 			writer.println("\t\t\tEQUAL,");
 			writer.println("\t\t\tNOT_EQUAL,");
 			writer.println("\t\t\tGREATER,");
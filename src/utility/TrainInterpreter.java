@@ -0,0 +1,56 @@
+package utility;
+
+import interpreter.Interpreter;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Training run for startup archives, interprets every intermediate
+ * code file of a directory within a single virtual machine so the
+ * archive covers classes any of them load
+ *
+ * Input of 'program.ir' is read from 'program.in' next to it, if
+ * there is no such file the program gets no input
+ */
+public class TrainInterpreter
+{
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length != 1)
+		{
+			System.err.println("Training directory missing!");
+			return;
+		}
+
+		File[] programs = new File(args[0]).listFiles((directory, name) -> name.endsWith(".ir"));
+
+		if (programs == null)
+		{
+			System.err.println("Training directory could not be found!");
+			return;
+		}
+
+		Arrays.sort(programs);
+
+		InputStream standardInput = System.in;
+
+		try
+		{
+			for (File program : programs)
+			{
+				File inputFile = new File(program.getPath().replace(".ir", ".in"));
+
+				try (InputStream input = inputFile.exists() ? new FileInputStream(inputFile) : new ByteArrayInputStream(new byte[0]))
+				{
+					System.setIn(input);
+					Interpreter.main(new String[] { "-quiet", program.getPath() });
+				}
+			}
+		}
+		finally
+		{
+			System.setIn(standardInput);
+		}
+	}
+}